@@ -0,0 +1,91 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jp.co.pattirudon.xoroshiroseed.matrices.BinaryMatrix;
+import jp.co.pattirudon.xoroshiroseed.matrices.Gf2Kernel;
+import jp.co.pattirudon.xoroshiroseed.matrices.PackedBinaryMatrix;
+
+/**
+ * singleBitsMatrix(n)に対する行列演算．kernelでスカラーとVector APIの実装を比べる．
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+@State(Scope.Benchmark)
+public class MatrixBenchmark {
+    @Param({ "64", "128", "256", "512", "1024", "4096" })
+    int motionLength;
+
+    @Param({ Gf2Kernel.SCALAR, Gf2Kernel.VECTOR })
+    String kernel;
+
+    PackedBinaryMatrix f;
+    PackedBinaryMatrix g;
+    PackedBinaryMatrix transposedF;
+    BinaryMatrix byteF;
+    long[] motions;
+
+    @Setup
+    public void setup() {
+        Gf2Kernel.use(kernel);
+        f = SeedSolver.packedSingleBitsMatrix(motionLength);
+        g = f.generalizedInverse();
+        transposedF = f.transposed();
+        byteF = BinaryMatrix.getInstance(f);
+        motions = PackedBinaryMatrix.pack(SeedSolver.singleBits(0x9dded9cbceb8c1ccL, 0x82a2b175229d6a5bL,
+                motionLength));
+    }
+
+    @Benchmark
+    public PackedBinaryMatrix.Enchelon enchelon() {
+        return f.enchelon();
+    }
+
+    /**
+     * SolveTables.parityCheck()でパリティ検査行列を求めるときの掃き出し(n x 128)．
+     */
+    @Benchmark
+    public PackedBinaryMatrix.Enchelon transposedGaussJordan() {
+        return transposedF.enchelonGaussJordan();
+    }
+
+    @Benchmark
+    public PackedBinaryMatrix.Enchelon transposedFourRussians() {
+        return transposedF.enchelonFourRussians();
+    }
+
+    @Benchmark
+    public PackedBinaryMatrix generalizedInverse() {
+        return f.generalizedInverse();
+    }
+
+    @Benchmark
+    public PackedBinaryMatrix multiplyRight() {
+        return f.multiplyRight(g);
+    }
+
+    @Benchmark
+    public long[] multiplyLeftVector() {
+        return g.multiplyLeft(motions);
+    }
+
+    @Benchmark
+    public BinaryMatrix.Enchelon byteAdapterEnchelon() {
+        return byteF.enchelon();
+    }
+}
@@ -0,0 +1,62 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * フレームの範囲を走査する探索．config/find_frame.jsonとconfig/find_single_state.jsonのモーションを使う．
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+    @Param({ "1000", "10000", "100000" })
+    long frames;
+
+    static final long S0 = 0x9dded9cbceb8c1ccL;
+    static final long S1 = 0x82a2b175229d6a5bL;
+    static final long START = 8000;
+
+    byte[] frameMotions;
+    byte[] singleStateMotions;
+
+    private static byte[] decode(String s) {
+        byte[] motions = new byte[s.length()];
+        for (int i = 0; i < s.length(); i++) {
+            motions[i] = (byte) (s.charAt(i) - '0');
+        }
+        return motions;
+    }
+
+    @Setup
+    public void setup() {
+        frameMotions = decode("1000110100100");
+        singleStateMotions = decode(
+                "00000000000110011101001101001001001110001010101001000010101000001001110001111");
+    }
+
+    @Benchmark
+    public List<Long> findMotionStartFrames() {
+        return SeedSolver.findMotionStartFrames(frameMotions, S0, S1, START, START + frames);
+    }
+
+    @Benchmark
+    public CandidateSet findSingleState() {
+        return SeedSolver.findSingleState(singleStateMotions, 1, S1, START, START + frames);
+    }
+}
@@ -0,0 +1,51 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link SeedSolver#solve(byte[])}．表を作るところ(cold)と，作った表で解くところ(warm)を分けて測る．
+ * 128個未満のモーションは解空間が大きすぎて列挙できないので，{@link ShortSolveBenchmark}でcoldだけを測る．
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SolveBenchmark {
+    @Param({ "128", "256", "512", "1024" })
+    int motionLength;
+
+    byte[] motions;
+    SolveTableStore store;
+
+    @Setup
+    public void setup() {
+        motions = SeedSolver.singleBits(0x9dded9cbceb8c1ccL, 0x82a2b175229d6a5bL, motionLength);
+        store = new SolveTableStore(null);
+        store.get(motionLength);
+    }
+
+    @Benchmark
+    public SolveTables cold() {
+        return SolveTables.compute(motionLength);
+    }
+
+    @Benchmark
+    public List<long[]> warm() {
+        return SeedSolver.solve(motions, store);
+    }
+}
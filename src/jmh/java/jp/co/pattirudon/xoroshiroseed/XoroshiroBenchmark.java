@@ -0,0 +1,58 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jp.co.pattirudon.xoroshiroseed.random.Xoroshiro;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class XoroshiroBenchmark {
+    Xoroshiro random;
+    long[] lowBits;
+
+    @Setup
+    public void setup() {
+        random = new Xoroshiro(0x9dded9cbceb8c1ccL, Xoroshiro.XOROSHIRO_CONST);
+        lowBits = new long[64];
+    }
+
+    @Benchmark
+    public long next() {
+        return random.next();
+    }
+
+    @Benchmark
+    public int nextInt() {
+        return random.nextInt();
+    }
+
+    @Benchmark
+    public long[] jump() {
+        random.jump(1_000_000_007L);
+        return random.s;
+    }
+
+    /**
+     * 4096フレーム分の最下位ビット．
+     */
+    @Benchmark
+    public long[] fillLowBits() {
+        random.fillLowBits(lowBits, 4096);
+        return lowBits;
+    }
+}
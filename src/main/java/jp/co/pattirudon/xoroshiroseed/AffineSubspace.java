@@ -0,0 +1,194 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jp.co.pattirudon.xoroshiroseed.matrices.GrayCodeSpliterator;
+import jp.co.pattirudon.xoroshiroseed.matrices.PackedBinaryMatrix;
+import jp.co.pattirudon.xoroshiroseed.random.XoroshiroTransition;
+
+/**
+ * GF(2)^128のアフィン部分空間 base + span(basis)．状態は{s0, s1}の順に詰め，第iビット(i &lt; 64)はs0の第iビット．
+ * <p>
+ * 基底は与えられた順に列挙に使い，それとは別に最上位ビットを軸とした階段形を持って，
+ * 含まれるかどうかの判定と交わりの計算に使う．空集合も表す．
+ */
+public final class AffineSubspace {
+    private static final AffineSubspace EMPTY = new AffineSubspace(null, new long[0][]);
+
+    private final long[] base;
+    private final long[][] basis;
+    /* echelon[p]は第pビットを最上位ビットとする基底ベクトル．なければnull */
+    private final long[][] echelon = new long[128][];
+
+    private AffineSubspace(long[] base, long[][] vectors) {
+        this.base = base;
+        List<long[]> independent = new ArrayList<>(vectors.length);
+        for (long[] v : vectors) {
+            if (insert(echelon, new long[] { v[0], v[1] }) != null) {
+                independent.add(new long[] { v[0], v[1] });
+            }
+        }
+        this.basis = independent.toArray(long[][]::new);
+    }
+
+    /**
+     * base + span(basis)．basisの従属なベクトルは捨てる．
+     */
+    public static AffineSubspace of(long[] base, long[][] basis) {
+        return new AffineSubspace(new long[] { base[0], base[1] }, basis);
+    }
+
+    public static AffineSubspace empty() {
+        return EMPTY;
+    }
+
+    private static int highestBit(long v0, long v1) {
+        return v1 != 0 ? 127 - Long.numberOfLeadingZeros(v1) : 63 - Long.numberOfLeadingZeros(v0);
+    }
+
+    /**
+     * vを階段形で簡約し，0でなければ加えて返す．0になればnullを返す．
+     */
+    private static long[] insert(long[][] echelon, long[] v) {
+        while (v[0] != 0 || v[1] != 0) {
+            int p = highestBit(v[0], v[1]);
+            if (echelon[p] == null) {
+                echelon[p] = v;
+                return v;
+            }
+            v[0] ^= echelon[p][0];
+            v[1] ^= echelon[p][1];
+        }
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return base == null;
+    }
+
+    /**
+     * 次元．空集合なら-1．
+     */
+    public int dimension() {
+        return isEmpty() ? -1 : basis.length;
+    }
+
+    public long[] base() {
+        if (isEmpty()) {
+            throw new IllegalStateException("The subspace is empty.");
+        }
+        return base.clone();
+    }
+
+    public long[][] basis() {
+        long[][] copy = new long[basis.length][];
+        for (int k = 0; k < basis.length; k++) {
+            copy[k] = basis[k].clone();
+        }
+        return copy;
+    }
+
+    public boolean contains(long s0, long s1) {
+        if (isEmpty()) {
+            return false;
+        }
+        long v0 = s0 ^ base[0];
+        long v1 = s1 ^ base[1];
+        while (v0 != 0 || v1 != 0) {
+            long[] e = echelon[highestBit(v0, v1)];
+            if (e == null) {
+                return false;
+            }
+            v0 ^= e[0];
+            v1 ^= e[1];
+        }
+        return true;
+    }
+
+    public boolean contains(long[] s) {
+        return contains(s[0], s[1]);
+    }
+
+    /**
+     * 元をグレイコード順に遅延評価で列挙する．
+     */
+    public GrayCodeSpliterator candidates() {
+        if (isEmpty()) {
+            return GrayCodeSpliterator.empty();
+        }
+        return new GrayCodeSpliterator(base, basis);
+    }
+
+    /**
+     * 共通部分．V, Wをそれぞれの向きとして，V + Wの基底を作りながら各ベクトルのVの成分を覚えておく．
+     * Wのベクトルが0に簡約されたときのVの成分がV ∩ Wを張り，
+     * 二つのbaseの差をV + Wで簡約したときのVの成分から共通の元が一つ得られる．
+     */
+    public AffineSubspace intersect(AffineSubspace other) {
+        if (isEmpty() || other.isEmpty()) {
+            return EMPTY;
+        }
+        long[][] sum = new long[128][];
+        long[][] part = new long[128][];
+        for (long[] v : basis) {
+            reduce(sum, part, new long[] { v[0], v[1] }, new long[] { v[0], v[1] });
+        }
+        List<long[]> common = new ArrayList<>();
+        for (long[] w : other.basis) {
+            long[] p = reduce(sum, part, new long[] { w[0], w[1] }, new long[2]);
+            if (p != null) {
+                common.add(p);
+            }
+        }
+        long[] p = reduce(sum, part, new long[] { base[0] ^ other.base[0], base[1] ^ other.base[1] }, new long[2]);
+        if (p == null) {
+            return EMPTY;
+        }
+        return new AffineSubspace(new long[] { base[0] ^ p[0], base[1] ^ p[1] }, common.toArray(long[][]::new));
+    }
+
+    /**
+     * vを簡約し，0でなければvと成分pを加えてnullを返す．0になればそのときの成分を返す．
+     */
+    private static long[] reduce(long[][] sum, long[][] part, long[] v, long[] p) {
+        while (v[0] != 0 || v[1] != 0) {
+            int q = highestBit(v[0], v[1]);
+            if (sum[q] == null) {
+                sum[q] = v;
+                part[q] = p;
+                return null;
+            }
+            v[0] ^= sum[q][0];
+            v[1] ^= sum[q][1];
+            p[0] ^= part[q][0];
+            p[1] ^= part[q][1];
+        }
+        return p;
+    }
+
+    /**
+     * 各元をframesフレーム進めた状態の集合．framesが負なら戻す．
+     */
+    public AffineSubspace shift(long frames) {
+        if (isEmpty()) {
+            return EMPTY;
+        }
+        PackedBinaryMatrix t = XoroshiroTransition.matrix(frames);
+        long[] b = base.clone();
+        XoroshiroTransition.multiplyInPlace(t, b);
+        long[][] vectors = basis();
+        for (long[] v : vectors) {
+            XoroshiroTransition.multiplyInPlace(t, v);
+        }
+        return new AffineSubspace(b, vectors);
+    }
+
+    @Override
+    public String toString() {
+        if (isEmpty()) {
+            return "{}";
+        }
+        return "(%016x, %016x) + span of %d vectors".formatted(base[0], base[1], basis.length);
+    }
+}
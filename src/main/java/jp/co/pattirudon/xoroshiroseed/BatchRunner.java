@@ -0,0 +1,100 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * 複数の設定を一つのJVMでまとめて解く．
+ * 入力は設定ファイル(*.json)を置いたディレクトリか，一行に一つの設定を書いたJSON Linesのファイル("-"なら標準入力)．
+ * 各設定はworkers個のスレッドで並行に解き，結果を終わった順にidつきのJSON Lines({@link JsonSolver})で書き出す．
+ * 事前計算した行列は{@link SolveTableStore}と{@link jp.co.pattirudon.xoroshiroseed.random.XoroshiroTransition}を通して共有される．
+ */
+public class BatchRunner {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonSolver solver = new JsonSolver(mapper);
+    private final int workers;
+    private final boolean metrics;
+
+    public BatchRunner(int workers) {
+        this(workers, false);
+    }
+
+    /**
+     * @param metrics trueなら各行に{@link jp.co.pattirudon.xoroshiroseed.metrics.SolverMetrics}の値を含める
+     */
+    public BatchRunner(int workers, boolean metrics) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers must be positive.");
+        }
+        this.workers = workers;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return 処理した設定の数
+     */
+    public long run(Path input, Writer output) throws IOException, InterruptedException {
+        /* キューがいっぱいのときは読み込み側のスレッドで解くので，読み込みが先走りすぎない */
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+        AtomicLong count = new AtomicLong();
+        try {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> files = Files.list(input)) {
+                    for (Path file : files.filter(f -> f.toString().endsWith(".json")).sorted().toList()) {
+                        String id = file.getFileName().toString();
+                        executor.execute(() -> write(output, solver.solve(id, () -> mapper.readTree(file.toFile()), metrics)));
+                        count.incrementAndGet();
+                    }
+                }
+            } else {
+                try (BufferedReader reader = "-".equals(input.toString())
+                        ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                        : Files.newBufferedReader(input)) {
+                    String line;
+                    long lineNumber = 0;
+                    while ((line = reader.readLine()) != null) {
+                        lineNumber++;
+                        if (line.isBlank())
+                            continue;
+                        String text = line;
+                        String defaultId = Long.toString(lineNumber);
+                        executor.execute(() -> write(output, solver.solve(defaultId, () -> mapper.readTree(text), metrics)));
+                        count.incrementAndGet();
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        output.flush();
+        return count.get();
+    }
+
+    private void write(Writer output, ObjectNode result) {
+        try {
+            String line = mapper.writeValueAsString(result);
+            synchronized (output) {
+                output.write(line);
+                output.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
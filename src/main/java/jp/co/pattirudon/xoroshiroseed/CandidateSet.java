@@ -0,0 +1,222 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * モーションが始まったフレームとゲーム開始時の状態(s0, s1)の組を，列ごとにlongの配列で持つ．
+ * <p>
+ * spillRows件を超えたら，それまでの分も含めて一時ファイルに移す．ファイルはSEGMENT_ROWS件ずつの区切りで読み書きし，
+ * メモリには書きかけの区切りと最後に読んだ区切りだけを置く．ファイルは閉じたときに消える．
+ * 既定のspillRowsはシステムプロパティ{@value #PROPERTY}で変えられる．
+ * スレッドセーフではない．
+ */
+public class CandidateSet implements AutoCloseable {
+    public static final String PROPERTY = "xoroshiroseed.spillRows";
+    public static final long DEFAULT_SPILL_ROWS = 1L << 22;
+
+    static final int SEGMENT_BITS = 18;
+    static final int SEGMENT_ROWS = 1 << SEGMENT_BITS;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MAX_HEAP_ROWS = Integer.MAX_VALUE - 8;
+
+    private final long spillRows;
+    private final Path directory;
+    private long size = 0;
+
+    /* ヒープ上の列．一時ファイルに移したらnull */
+    private long[] frames, s0, s1;
+
+    /* 一時ファイル上の列．区切りごとにframes, s0, s1の順でSEGMENT_ROWS件ずつ並べる */
+    private Path file;
+    private FileChannel channel;
+    /* 書きかけの区切りwriteSegmentと，最後に読んだ区切りreadSegment */
+    private ByteBuffer writeBuffer, readBuffer;
+    private long writeSegment = 0, readSegment = -1;
+
+    public CandidateSet() {
+        this(Long.getLong(PROPERTY, DEFAULT_SPILL_ROWS), null);
+    }
+
+    /**
+     * @param spillRows この件数を超えたら一時ファイルに移す
+     * @param directory 一時ファイルを作るディレクトリ．nullならjava.io.tmpdir
+     */
+    public CandidateSet(long spillRows, Path directory) {
+        if (spillRows < 0) {
+            throw new IllegalArgumentException("Spill rows must not be negative.");
+        }
+        this.spillRows = spillRows;
+        this.directory = directory;
+        int capacity = (int) Math.min(INITIAL_CAPACITY, Math.max(1, spillRows));
+        this.frames = new long[capacity];
+        this.s0 = new long[capacity];
+        this.s1 = new long[capacity];
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    public void add(long frame, long s0, long s1) {
+        if (file == null && (size == spillRows || size == MAX_HEAP_ROWS)) {
+            spill();
+        }
+        if (file == null) {
+            int i = (int) size;
+            if (i == frames.length) {
+                int capacity = (int) Math.min(spillRows, Math.min(MAX_HEAP_ROWS, 2L * frames.length));
+                this.frames = Arrays.copyOf(frames, capacity);
+                this.s0 = Arrays.copyOf(this.s0, capacity);
+                this.s1 = Arrays.copyOf(this.s1, capacity);
+            }
+            frames[i] = frame;
+            this.s0[i] = s0;
+            this.s1[i] = s1;
+        } else {
+            int within = (int) (size & (SEGMENT_ROWS - 1));
+            if (within == 0 && size != 0) {
+                write(writeSegment++);
+            }
+            writeBuffer.putLong(Long.BYTES * within, frame);
+            writeBuffer.putLong(Long.BYTES * (SEGMENT_ROWS + within), s0);
+            writeBuffer.putLong(Long.BYTES * (2 * SEGMENT_ROWS + within), s1);
+        }
+        size++;
+    }
+
+    /**
+     * otherの組をすべて末尾に加える．
+     */
+    public void addAll(CandidateSet other) {
+        for (long i = 0; i < other.size; i++) {
+            add(other.frame(i), other.s0(i), other.s1(i));
+        }
+    }
+
+    public long frame(long i) {
+        return get(i, 0);
+    }
+
+    public long s0(long i) {
+        return get(i, 1);
+    }
+
+    public long s1(long i) {
+        return get(i, 2);
+    }
+
+    /**
+     * i番目のゲーム開始時の状態を{s0, s1}の順で返す．
+     */
+    public long[] state(long i) {
+        return new long[] { s0(i), s1(i) };
+    }
+
+    private long get(long i, int column) {
+        if (i < 0 || size <= i) {
+            throw new IndexOutOfBoundsException("Index %d out of bounds for size %d.".formatted(i, size));
+        }
+        if (file == null) {
+            long[] c = column == 0 ? frames : column == 1 ? s0 : s1;
+            return c[(int) i];
+        } else {
+            long segment = i >>> SEGMENT_BITS;
+            ByteBuffer buffer = writeBuffer;
+            if (segment != writeSegment) {
+                if (segment != readSegment) {
+                    read(segment);
+                }
+                buffer = readBuffer;
+            }
+            return buffer.getLong(Long.BYTES * (column * SEGMENT_ROWS + (int) (i & (SEGMENT_ROWS - 1))));
+        }
+    }
+
+    private void write(long segment) {
+        try {
+            writeBuffer.clear();
+            long position = segment * writeBuffer.capacity();
+            while (writeBuffer.hasRemaining()) {
+                position += channel.write(writeBuffer, position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void read(long segment) {
+        try {
+            readBuffer.clear();
+            long position = segment * readBuffer.capacity();
+            while (readBuffer.hasRemaining()) {
+                int n = channel.read(readBuffer, position);
+                if (n < 0) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+                position += n;
+            }
+            readSegment = segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void spill() {
+        long[] f = frames, a = s0, b = s1;
+        long n = size;
+        try {
+            file = directory == null ? Files.createTempFile("candidates", ".bin")
+                    : Files.createTempFile(directory, "candidates", ".bin");
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int bytes = 3 * Long.BYTES * SEGMENT_ROWS;
+        writeBuffer = ByteBuffer.allocate(bytes).order(ByteOrder.nativeOrder());
+        readBuffer = ByteBuffer.allocate(bytes).order(ByteOrder.nativeOrder());
+        frames = s0 = s1 = null;
+        size = 0;
+        for (int i = 0; i < n; i++) {
+            add(f[i], a[i], b[i]);
+        }
+    }
+
+    /**
+     * 一時ファイルがあれば閉じて消す．消せなくても例外は投げない．
+     */
+    @Override
+    public void close() {
+        if (channel != null) {
+            writeBuffer = readBuffer = null;
+            readSegment = -1;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                /* 読み書きはもうしないので，閉じられなくても続ける */
+            }
+            channel = null;
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                /* DELETE_ON_CLOSEで消えているはずなので，残っていても一時ディレクトリに任せる */
+            }
+        }
+    }
+}
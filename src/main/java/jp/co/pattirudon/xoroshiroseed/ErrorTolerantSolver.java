@@ -0,0 +1,255 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import jp.co.pattirudon.xoroshiroseed.config.SeedSolverConfig;
+import jp.co.pattirudon.xoroshiroseed.matrices.PackedBinaryMatrix;
+import jp.co.pattirudon.xoroshiroseed.metrics.SolverMetrics;
+import jp.co.pattirudon.xoroshiroseed.random.Xoroshiro;
+import jp.co.pattirudon.xoroshiroseed.random.XoroshiroTransition;
+
+/**
+ * 読み間違えたモーションをmaxErrors個まで許して解く．
+ * <p>
+ * 状態を全部求めるときは，{@link SolveTables}のパリティ検査行列Hを一度だけ使う．
+ * 読んだモーションyのシンドロームH・yが，反転させる位置の集合eについての和Σ_{i∈e} H・e_iと等しくなるeを，
+ * 最後の1個を除いて組み合わせを列挙し，最後の1個はシンドロームから位置を引く表で探す．
+ * 見つかったeについて，解はyの解に一般化逆行列のi行目(i∈e)を足したものになる．
+ * <p>
+ * 重みmaxErrors以下のeの個数がシンドロームの個数2^rを超えると，反転のさせ方を見分けられないので受け付けない．
+ */
+public class ErrorTolerantSolver {
+    /**
+     * 反転させたモーションの位置と，そのときの解の集合．
+     */
+    public static class Correction {
+        public final long motionStartFrame;
+        public final int[] positions;
+        public final AffineSubspace gameStart;
+
+        Correction(long motionStartFrame, int[] positions, AffineSubspace gameStart) {
+            this.motionStartFrame = motionStartFrame;
+            this.positions = positions;
+            this.gameStart = gameStart;
+        }
+    }
+
+    private static final class Syndrome {
+        final long[] words;
+
+        Syndrome(long[] words) {
+            this.words = words;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Syndrome s && Arrays.equals(words, s.words);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(words);
+        }
+    }
+
+    public static List<Correction> solve(byte[] motions, int maxErrors) {
+        return solve(motions, maxErrors, SolveTableStore.getDefault());
+    }
+
+    /**
+     * モーションを高々maxErrors個反転させて解を持つようにするすべての方法と，それぞれの解を返す．
+     * 反転させる位置は辞書順に並ぶ．
+     *
+     * @throws IllegalArgumentException モーションが少なくてmaxErrors個の反転を見分けられないとき
+     */
+    public static List<Correction> solve(byte[] motions, int maxErrors, SolveTableStore store) {
+        if (maxErrors < 0) {
+            throw new IllegalArgumentException("Max errors must not be negative.");
+        }
+        int n = motions.length;
+        SolveTables tables;
+        try (SolverMetrics.Phase phase = SolverMetrics.phase("tables")) {
+            tables = store.get(n);
+        }
+        if (tables.nullBasis.length > SeedSolver.MAX_MATERIALIZED_RANK)
+            throw new TooFewMotionsException("Too less motions. Being not less than 128 recommended.");
+        SolverMetrics.current().recordNullRank(tables.nullBasis.length);
+        /* Hの行数はn - rank f */
+        int r = n - (128 - tables.nullBasis.length);
+        if (!distinguishable(n, r, maxErrors)) {
+            throw new IllegalArgumentException(
+                    "Too few motions to tell %d flipped motions apart.".formatted(maxErrors));
+        }
+        long[][] parityCheck;
+        try (SolverMetrics.Phase phase = SolverMetrics.phase("tables")) {
+            parityCheck = tables.parityCheck();
+        }
+        try (SolverMetrics.Phase phase = SolverMetrics.phase("decode")) {
+            long[][] columns = PackedBinaryMatrix.getInstance(r, n, parityCheck, false).transposed().mat;
+            long[] packedMotions = PackedBinaryMatrix.pack(motions);
+            long[] syndrome = new long[PackedBinaryMatrix.wordsFor(r)];
+            for (int l = 0; l < r; l++) {
+                long[] k = parityCheck[l];
+                long x = 0;
+                for (int w = 0; w < k.length; w++) {
+                    x ^= k[w] & packedMotions[w];
+                }
+                syndrome[l >>> 6] |= (long) (Long.bitCount(x) & 1) << l;
+            }
+            Map<Syndrome, List<Integer>> positionsOf = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                positionsOf.computeIfAbsent(new Syndrome(columns[i]), key -> new ArrayList<>()).add(i);
+            }
+            long[] base = tables.particularSolution(packedMotions);
+            List<Correction> corrections = new ArrayList<>();
+            new Decoder(tables, columns, positionsOf, syndrome, maxErrors, corrections).search(0, 0,
+                    new long[syndrome.length], new int[maxErrors], base[0], base[1]);
+            phase.candidates(corrections.stream().mapToLong(c -> 1L << c.gameStart.dimension()).sum());
+            return corrections;
+        }
+    }
+
+    /**
+     * 長さnの列の重みmaxErrors以下の誤りの個数Σ_{i≤maxErrors} C(n, i)が，r行のシンドロームの個数2^r以下か．
+     */
+    static boolean distinguishable(int n, int r, int maxErrors) {
+        BigInteger patterns = BigInteger.ZERO;
+        BigInteger binomial = BigInteger.ONE;
+        for (int i = 0; i <= maxErrors && i <= n; i++) {
+            patterns = patterns.add(binomial);
+            binomial = binomial.multiply(BigInteger.valueOf(n - i)).divide(BigInteger.valueOf(i + 1));
+        }
+        return patterns.compareTo(BigInteger.ONE.shiftLeft(r)) <= 0;
+    }
+
+    private static final class Decoder {
+        final SolveTables tables;
+        final long[][] columns;
+        final Map<Syndrome, List<Integer>> positionsOf;
+        final long[] syndrome;
+        final int maxErrors;
+        final List<Correction> corrections;
+
+        Decoder(SolveTables tables, long[][] columns, Map<Syndrome, List<Integer>> positionsOf, long[] syndrome,
+                int maxErrors, List<Correction> corrections) {
+            this.tables = tables;
+            this.columns = columns;
+            this.positionsOf = positionsOf;
+            this.syndrome = syndrome;
+            this.maxErrors = maxErrors;
+            this.corrections = corrections;
+        }
+
+        /**
+         * chosen[0, depth)を反転させたときのシンドロームがpartial，解の一つが(x0, x1)．
+         */
+        void search(int depth, int from, long[] partial, int[] chosen, long x0, long x1) {
+            if (Arrays.equals(partial, syndrome)) {
+                emit(chosen, depth, x0, x1);
+            }
+            if (depth == maxErrors) {
+                return;
+            }
+            int n = columns.length;
+            if (depth == maxErrors - 1) {
+                long[] need = new long[syndrome.length];
+                for (int w = 0; w < need.length; w++) {
+                    need[w] = partial[w] ^ syndrome[w];
+                }
+                List<Integer> last = positionsOf.get(new Syndrome(need));
+                if (last != null) {
+                    for (int j : last) {
+                        if (from <= j) {
+                            chosen[depth] = j;
+                            long[] g = tables.inverse.mat[j];
+                            emit(chosen, depth + 1, x0 ^ g[0], x1 ^ g[1]);
+                        }
+                    }
+                }
+                return;
+            }
+            for (int j = from; j < n; j++) {
+                long[] next = new long[syndrome.length];
+                for (int w = 0; w < next.length; w++) {
+                    next[w] = partial[w] ^ columns[j][w];
+                }
+                chosen[depth] = j;
+                long[] g = tables.inverse.mat[j];
+                search(depth + 1, j + 1, next, chosen, x0 ^ g[0], x1 ^ g[1]);
+            }
+        }
+
+        void emit(int[] chosen, int size, long x0, long x1) {
+            corrections.add(new Correction(0, Arrays.copyOf(chosen, size),
+                    AffineSubspace.of(new long[] { x0, x1 }, tables.nullBasis)));
+        }
+    }
+
+    /**
+     * 状態(s0, s1)から始めて，直近のモーションとのハミング距離がmaxErrors以下になるフレームを探す．
+     */
+    public static List<Correction> findMotionStartFrames(byte[] motions, long s0, long s1,
+            long frameStartInclusive, long frameEndExclusive, int maxErrors) {
+        try (SolverMetrics.Phase phase = SolverMetrics.phase("scan")) {
+            long[] t = XoroshiroTransition.move(new long[] { s0, s1 }, frameStartInclusive);
+            long t0 = t[0];
+            long t1 = t[1];
+            MotionMatcher matcher = new MotionMatcher(motions);
+            List<Correction> corrections = new ArrayList<>();
+            AffineSubspace gameStart = AffineSubspace.of(new long[] { s0, s1 }, new long[0][]);
+            for (long i = frameStartInclusive; i < frameEndExclusive + motions.length; i++) {
+                if (matcher.distance() <= maxErrors) {
+                    corrections.add(new Correction(i - motions.length, matcher.mismatches(), gameStart));
+                }
+                matcher.push(Xoroshiro.lowBit(t0, t1));
+                long n0 = Xoroshiro.nextS0(t0, t1);
+                t1 = Xoroshiro.nextS1(t0, t1);
+                t0 = n0;
+            }
+            phase.frames(Math.max(0, frameEndExclusive - frameStartInclusive)).candidates(corrections.size());
+            return corrections;
+        }
+    }
+
+    public static List<Correction> findMotionStartFrames(byte[] motions, long s0, long s1,
+            long frameStartInclusive, long frameEndExclusive, int maxErrors, int parallelism, Executor executor) {
+        List<List<Correction>> chunks = FrameRangeSearch.search(frameStartInclusive, frameEndExclusive,
+                parallelism, executor, (start, end) -> findMotionStartFrames(motions, s0, s1, start, end, maxErrors));
+        List<Correction> corrections = new ArrayList<>();
+        chunks.forEach(corrections::addAll);
+        return corrections;
+    }
+
+    /**
+     * configに応じて誤りを許した探索を行う．s0とs1の片方だけが与えられたときと，最下位ビット以外を観測するときは使えない．
+     */
+    public static List<Correction> search(SeedSolverConfig config, int parallelism, Executor executor) {
+        if (!config.observations.isLowBit()) {
+            throw new IllegalArgumentException("Max errors supports only the low bit observation.");
+        } else if (config.s0.isPresent() && config.s1.isPresent()) {
+            return findMotionStartFrames(config.motions, config.s0.getAsLong(), config.s1.getAsLong(),
+                    config.frame.startInclusive, config.frame.endExclusive, config.maxErrors, parallelism, executor);
+        } else if (config.s0.isEmpty() && config.s1.isEmpty()) {
+            return solve(config.motions, config.maxErrors);
+        } else {
+            throw new IllegalArgumentException("Max errors needs both or neither of s0 and s1.");
+        }
+    }
+
+    /**
+     * モーションが始まったフレームとゲーム開始時の状態の組に並べ直す．
+     */
+    public static CandidateSet flatten(List<Correction> corrections) {
+        CandidateSet found = new CandidateSet();
+        for (Correction c : corrections) {
+            c.gameStart.candidates().forEachRemaining((s0, s1) -> found.add(c.motionStartFrame, s0, s1));
+        }
+        return found;
+    }
+}
@@ -0,0 +1,70 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import jp.co.pattirudon.xoroshiroseed.metrics.SolverMetrics;
+
+/**
+ * フレームの範囲[startInclusive, endExclusive)をいくつかの区間に分け，区間ごとの探索を並列に実行する．
+ * 各区間の探索は区間の先頭から直接始め，motions.length個分だけ区間の後ろまで乱数を進めるので，
+ * 区間ごとの結果をフレーム順に連結すれば逐次実行と同じ結果になる．
+ */
+public class FrameRangeSearch {
+    public static final long MIN_CHUNK_FRAMES = 1L << 12;
+    public static final int CHUNKS_PER_THREAD = 4;
+
+    @FunctionalInterface
+    public interface RangeSearch<R> {
+        R search(long startInclusive, long endExclusive);
+    }
+
+    public static long[] chunkBounds(long startInclusive, long endExclusive, int parallelism) {
+        long frames = Math.max(0, endExclusive - startInclusive);
+        long chunks = parallelism <= 1 ? 1 : (long) parallelism * CHUNKS_PER_THREAD;
+        long chunkFrames = Math.max(MIN_CHUNK_FRAMES, (frames + chunks - 1) / chunks);
+        int n = (int) Math.max(1, (frames + chunkFrames - 1) / chunkFrames);
+        long[] bounds = new long[n + 1];
+        for (int i = 0; i < n; i++) {
+            bounds[i] = startInclusive + chunkFrames * i;
+        }
+        bounds[n] = Math.max(startInclusive, endExclusive);
+        return bounds;
+    }
+
+    /**
+     * 区間ごとの探索結果をフレーム順に並べて返す．
+     * 呼び出したスレッドの{@link SolverMetrics}は各区間を探索するスレッドにも引き継ぐ．
+     */
+    public static <R> List<R> search(long startInclusive, long endExclusive, int parallelism, Executor executor,
+            RangeSearch<R> search) {
+        long[] bounds = chunkBounds(startInclusive, endExclusive, parallelism);
+        List<CompletableFuture<R>> futures = new ArrayList<>(bounds.length - 1);
+        SolverMetrics metrics = SolverMetrics.current();
+        for (int i = 0; i < bounds.length - 1; i++) {
+            long chunkStart = bounds[i];
+            long chunkEnd = bounds[i + 1];
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try (SolverMetrics.Scope scope = metrics.attach()) {
+                    return search.search(chunkStart, chunkEnd);
+                }
+            }, executor));
+        }
+        List<R> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<R> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                futures.forEach(f -> f.cancel(false));
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,295 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import jp.co.pattirudon.xoroshiroseed.matrices.PackedBinaryMatrix;
+import jp.co.pattirudon.xoroshiroseed.metrics.SolverMetrics;
+import jp.co.pattirudon.xoroshiroseed.random.Xoroshiro;
+import jp.co.pattirudon.xoroshiroseed.random.XoroshiroTransition;
+
+/**
+ * ある状態から始まる最下位ビットの列について，各フレームから始まる64ビットの窓をハッシュで引けるようにした索引．
+ * <p>
+ * 窓はハッシュの上位bucketBitsビットで振り分けてバケットごとに並べ，バケットの先頭位置を表に持つ．
+ * 64個以上のモーションなら，先頭64個でバケットを一つ引き，残りのモーションを確かめるだけで済む．
+ * ファイルに書いたものは{@link #open(Path)}でメモリに写像して読む．
+ */
+public class FrameWindowIndex {
+    static final long MAGIC = 0x5853574900000001L;
+    static final int HEADER_LONGS = 6;
+    /* 窓の領域を一度に写像できる大きさ */
+    public static final long MAX_FRAMES = (Integer.MAX_VALUE >>> 3);
+
+    private static final List<FrameWindowIndex> registered = new CopyOnWriteArrayList<>();
+
+    public final long s0, s1;
+    public final long startInclusive, endExclusive;
+    private final int bucketBits;
+    /* バケットごとに並べた窓と，その窓が始まるフレームのstartInclusiveからのオフセット */
+    private final LongBuffer windows;
+    private final IntBuffer offsets;
+    /* バケットbの窓はbuckets[b]からbuckets[b + 1]の手前まで */
+    private final IntBuffer buckets;
+
+    private FrameWindowIndex(long s0, long s1, long startInclusive, long frames, int bucketBits, LongBuffer windows,
+            IntBuffer offsets, IntBuffer buckets) {
+        this.s0 = s0;
+        this.s1 = s1;
+        this.startInclusive = startInclusive;
+        this.endExclusive = startInclusive + frames;
+        this.bucketBits = bucketBits;
+        this.windows = windows;
+        this.offsets = offsets;
+        this.buckets = buckets;
+    }
+
+    static long hash(long window) {
+        window ^= window >>> 33;
+        window *= 0xff51afd7ed558ccdL;
+        window ^= window >>> 33;
+        window *= 0xc4ceb9fe1a85ec53L;
+        window ^= window >>> 33;
+        return window;
+    }
+
+    private int bucket(long window) {
+        return (int) (hash(window) >>> (64 - bucketBits));
+    }
+
+    public static FrameWindowIndex build(long s0, long s1, long startInclusive, long endExclusive) {
+        long frames = Math.max(0, endExclusive - startInclusive);
+        if (frames > MAX_FRAMES) {
+            throw new IllegalArgumentException("Frame range must not exceed %d frames.".formatted(MAX_FRAMES));
+        }
+        int count = (int) frames;
+        int bucketBits = Math.max(1, 64 - Long.numberOfLeadingZeros(Math.max(1, count - 1)));
+        try (SolverMetrics.Phase phase = SolverMetrics.phase("index")) {
+            long[] keys = new long[count];
+            long[] t = XoroshiroTransition.move(new long[] { s0, s1 }, startInclusive);
+            long t0 = t[0];
+            long t1 = t[1];
+            long window = 0;
+            for (long i = 0; i < frames + 63; i++) {
+                window = (window >>> 1) | ((long) Xoroshiro.lowBit(t0, t1) << 63);
+                if (63 <= i) {
+                    keys[(int) (i - 63)] = window;
+                }
+                long n0 = Xoroshiro.nextS0(t0, t1);
+                t1 = Xoroshiro.nextS1(t0, t1);
+                t0 = n0;
+            }
+            /* バケットごとの計数ソート */
+            int[] buckets = new int[(1 << bucketBits) + 1];
+            for (long key : keys) {
+                buckets[(int) (hash(key) >>> (64 - bucketBits)) + 1]++;
+            }
+            for (int b = 0; b < 1 << bucketBits; b++) {
+                buckets[b + 1] += buckets[b];
+            }
+            int[] next = new int[1 << bucketBits];
+            System.arraycopy(buckets, 0, next, 0, next.length);
+            long[] windows = new long[count];
+            int[] offsets = new int[count];
+            for (int k = 0; k < count; k++) {
+                int i = next[(int) (hash(keys[k]) >>> (64 - bucketBits))]++;
+                windows[i] = keys[k];
+                offsets[i] = k;
+            }
+            phase.frames(frames);
+            return new FrameWindowIndex(s0, s1, startInclusive, frames, bucketBits, LongBuffer.wrap(windows),
+                    IntBuffer.wrap(offsets), IntBuffer.wrap(buckets));
+        }
+    }
+
+    public long frames() {
+        return endExclusive - startInclusive;
+    }
+
+    public boolean covers(long s0, long s1) {
+        return this.s0 == s0 && this.s1 == s1;
+    }
+
+    /**
+     * {@link SeedSolver#findMotionStartFrames(byte[], long, long, long, long)}と同じフレームを昇順に返す．
+     * 索引の範囲外の部分と，64個に満たないモーションは先頭から順に調べる．
+     */
+    public List<Long> findMotionStartFrames(byte[] motions, long frameStartInclusive, long frameEndExclusive) {
+        long lo = Math.max(frameStartInclusive, startInclusive);
+        long hi = Math.min(frameEndExclusive, endExclusive);
+        if (motions.length < 64 || hi <= lo) {
+            return SeedSolver.findMotionStartFrames(motions, s0, s1, frameStartInclusive, frameEndExclusive);
+        }
+        List<Long> foundFrames = new ArrayList<>();
+        if (frameStartInclusive < lo) {
+            foundFrames.addAll(SeedSolver.findMotionStartFrames(motions, s0, s1, frameStartInclusive, lo));
+        }
+        try (SolverMetrics.Phase phase = SolverMetrics.phase("probe")) {
+            long[] pattern = PackedBinaryMatrix.pack(motions);
+            long key = pattern[0];
+            int b = bucket(key);
+            List<Long> probed = new ArrayList<>();
+            for (int i = buckets.get(b); i < buckets.get(b + 1); i++) {
+                if (windows.get(i) != key) {
+                    continue;
+                }
+                long frame = startInclusive + offsets.get(i);
+                if (lo <= frame && frame < hi && matchesTail(motions, frame)) {
+                    probed.add(frame);
+                }
+            }
+            Collections.sort(probed);
+            phase.frames(hi - lo).candidates(probed.size());
+            foundFrames.addAll(probed);
+        }
+        if (hi < frameEndExclusive) {
+            foundFrames.addAll(SeedSolver.findMotionStartFrames(motions, s0, s1, hi, frameEndExclusive));
+        }
+        return foundFrames;
+    }
+
+    /**
+     * 先頭64個が一致したフレームについて，残りのモーションを確かめる．
+     */
+    private boolean matchesTail(byte[] motions, long frame) {
+        if (motions.length == 64) {
+            return true;
+        }
+        long[] t = XoroshiroTransition.move(new long[] { s0, s1 }, frame + 64);
+        long t0 = t[0];
+        long t1 = t[1];
+        for (int j = 64; j < motions.length; j++) {
+            if (Xoroshiro.lowBit(t0, t1) != motions[j]) {
+                return false;
+            }
+            long n0 = Xoroshiro.nextS0(t0, t1);
+            t1 = Xoroshiro.nextS1(t0, t1);
+            t0 = n0;
+        }
+        return true;
+    }
+
+    public void write(Path path) throws IOException {
+        int count = (int) frames();
+        Path tmp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.allocate(8 * HEADER_LONGS).order(ByteOrder.LITTLE_ENDIAN);
+                header.asLongBuffer().put(MAGIC).put(s0).put(s1).put(startInclusive).put(count).put(bucketBits);
+                writeFully(channel, header);
+                ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < count; i++) {
+                    if (buffer.remaining() < 8) {
+                        writeFully(channel, buffer.flip());
+                        buffer.clear();
+                    }
+                    buffer.putLong(windows.get(i));
+                }
+                for (int i = 0; i < buckets.limit(); i++) {
+                    if (buffer.remaining() < 4) {
+                        writeFully(channel, buffer.flip());
+                        buffer.clear();
+                    }
+                    buffer.putInt(buckets.get(i));
+                }
+                for (int i = 0; i < count; i++) {
+                    if (buffer.remaining() < 4) {
+                        writeFully(channel, buffer.flip());
+                        buffer.clear();
+                    }
+                    buffer.putInt(offsets.get(i));
+                }
+                writeFully(channel, buffer.flip());
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public static FrameWindowIndex open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 8 * HEADER_LONGS) {
+                throw new IOException("Not a frame window index file: " + path);
+            }
+            LongBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 8 * HEADER_LONGS)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            if (header.get() != MAGIC) {
+                throw new IOException("Not a frame window index file: " + path);
+            }
+            long s0 = header.get();
+            long s1 = header.get();
+            long startInclusive = header.get();
+            long count = header.get();
+            long bucketBits = header.get();
+            if (count < 0 || MAX_FRAMES < count || bucketBits < 1 || 31 <= bucketBits) {
+                throw new IOException("Broken frame window index file: " + path);
+            }
+            long windowsPosition = 8 * HEADER_LONGS;
+            long bucketsPosition = windowsPosition + 8 * count;
+            long offsetsPosition = bucketsPosition + 4 * ((1L << bucketBits) + 1);
+            if (size != offsetsPosition + 4 * count) {
+                throw new IOException("Broken frame window index file: " + path);
+            }
+            /* 写像はチャンネルを閉じても有効 */
+            LongBuffer windows = channel.map(FileChannel.MapMode.READ_ONLY, windowsPosition, 8 * count)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            IntBuffer buckets = channel.map(FileChannel.MapMode.READ_ONLY, bucketsPosition,
+                    offsetsPosition - bucketsPosition).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            IntBuffer offsets = channel.map(FileChannel.MapMode.READ_ONLY, offsetsPosition, 4 * count)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            return new FrameWindowIndex(s0, s1, startInclusive, count, (int) bucketBits, windows, offsets,
+                    buckets);
+        }
+    }
+
+    /**
+     * {@link SeedSolver#search}が使う索引に加える．
+     */
+    public static void register(FrameWindowIndex index) {
+        registered.add(index);
+    }
+
+    public static void clearRegistered() {
+        registered.clear();
+    }
+
+    /**
+     * 状態(s0, s1)についての索引のうち，[frameStartInclusive, frameEndExclusive)と最も多く重なるもの．なければnull．
+     */
+    public static FrameWindowIndex find(long s0, long s1, long frameStartInclusive, long frameEndExclusive) {
+        FrameWindowIndex best = null;
+        long bestOverlap = 0;
+        for (FrameWindowIndex index : registered) {
+            if (index.covers(s0, s1)) {
+                long overlap = Math.min(frameEndExclusive, index.endExclusive)
+                        - Math.max(frameStartInclusive, index.startInclusive);
+                if (bestOverlap < overlap) {
+                    best = index;
+                    bestOverlap = overlap;
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,349 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import jp.co.pattirudon.xoroshiroseed.matrices.GrayCodeSpliterator;
+import jp.co.pattirudon.xoroshiroseed.matrices.LongPairPredicate;
+import jp.co.pattirudon.xoroshiroseed.matrices.PackedBinaryMatrix;
+import jp.co.pattirudon.xoroshiroseed.metrics.SolverMetrics;
+import jp.co.pattirudon.xoroshiroseed.random.LowBitCoefficients;
+import jp.co.pattirudon.xoroshiroseed.random.ObservationSpec;
+
+/**
+ * {@link SeedSolver#findSingleState}のうち，既知の半分sにもモーションにも依らない部分をフレームごとに前計算したもの．
+ * <p>
+ * フレームfの窓の式は A・x = K・s ^ m (Aは未知の側の係数，Kは既知の側の係数)と書ける．
+ * Aの一般化逆行列Gと零空間の基底をフレームごとに一度だけ求め，さらにG・Kの列を64ビットずつ持っておく．
+ * 問い合わせではモーションごとにG・mを求め，sごとの計算はx = G・(K・s ^ m)を64ビットの行列とベクトルの積で求めて，
+ * A・x = K・s ^ mを確かめるだけになる．AとKの行は隣のフレームと共有するので，範囲全体で一つずつ持つ．
+ * <p>
+ * 表はフレームごとにおよそ{@link #bytesPerFrame(int)}バイト使う．キャッシュにあるものと計算中のものの合計がMAX_BYTESを
+ * 超えるときは，使っていない順にキャッシュから追い出し，それでも足りなければ受け付けない．
+ * 観測は最下位ビットだけに対応する．
+ */
+public class FrameWindowTables {
+    public final int designated;
+    public final long startInclusive, endExclusive;
+    public final int length;
+
+    /* AとKの行．添字はフレーム - startInclusive + t */
+    private final long[] unknown;
+    private final long[] known;
+    /* フレームごとの表．添字はフレーム - startInclusive */
+    private final long[][] inverse;
+    private final long[][] knownToSolution;
+    private final long[][] nullBasis;
+
+    public static final long MAX_BYTES = 1L << 30;
+
+    private static final int CACHE_SIZE = 4;
+    /* 計算中のものも含めた表．計算は鍵ごとに一度だけロックの外で行い，他の鍵の問い合わせを待たせない */
+    private static final Map<Key, CompletableFuture<FrameWindowTables>> cache = new HashMap<>();
+    /* 計算の終わった鍵を使った順に並べたもの．cacheから追い出すものを決めるためだけに使う．
+     * cacheへの出し入れとreservedBytesはこのロックの中で行う */
+    private static final Map<Key, Boolean> recent = new LinkedHashMap<>(16, 0.75f, true);
+    /* cacheにある表のバイト数の合計 */
+    private static long reservedBytes = 0;
+
+    private static final class Key {
+        final int designated;
+        final long startInclusive, endExclusive;
+        final int length;
+        final long bytes;
+
+        Key(int designated, long startInclusive, long endExclusive, int length, long bytes) {
+            this.designated = designated;
+            this.startInclusive = startInclusive;
+            this.endExclusive = endExclusive;
+            this.length = length;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && designated == k.designated && startInclusive == k.startInclusive
+                    && endExclusive == k.endExclusive && length == k.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(designated, startInclusive, endExclusive, length);
+        }
+    }
+
+    private FrameWindowTables(int designated, long startInclusive, long endExclusive, int length) {
+        int frames = (int) Math.max(0, endExclusive - startInclusive);
+        this.designated = designated;
+        this.startInclusive = startInclusive;
+        this.endExclusive = endExclusive;
+        this.length = length;
+        this.unknown = new long[frames + length];
+        this.known = new long[frames + length];
+        LowBitCoefficients coefficients = new LowBitCoefficients(startInclusive);
+        for (int t = 0; t < unknown.length; t++) {
+            unknown[t] = designated == 0 ? coefficients.s1() : coefficients.s0();
+            known[t] = designated == 0 ? coefficients.s0() : coefficients.s1();
+            coefficients.next();
+        }
+        this.inverse = new long[frames][];
+        this.knownToSolution = new long[frames][];
+        this.nullBasis = new long[frames][];
+    }
+
+    /**
+     * 長さlengthのモーションについて，1フレーム分の表が使うおよそのバイト数．
+     */
+    public static long bytesPerFrame(int length) {
+        /* G，G・K，零空間の基底と，AとKの1行ずつ */
+        long words = length + 64 + 64 + 2;
+        return Long.BYTES * words + 3 * 16;
+    }
+
+    /**
+     * 最近使った表をいくつか覚えておき，同じ(designated, フレームの範囲, モーションの長さ)なら使い回す．
+     * 同じ鍵を同時に問い合わせたときは，一方の計算が終わるのを待つ．
+     *
+     * @throws IllegalArgumentException 計算中のものと合わせてMAX_BYTESを超えるとき
+     */
+    public static FrameWindowTables get(int designated, long startInclusive, long endExclusive, int length,
+            int parallelism, Executor executor) {
+        Key key = new Key(designated, startInclusive, endExclusive, length,
+                bytes(designated, startInclusive, endExclusive, length));
+        CompletableFuture<FrameWindowTables> created = new CompletableFuture<>();
+        CompletableFuture<FrameWindowTables> future;
+        synchronized (recent) {
+            future = cache.get(key);
+            if (future == null) {
+                reserve(key);
+                cache.put(key, created);
+                future = created;
+            }
+        }
+        if (future == created) {
+            try {
+                created.complete(compute(designated, startInclusive, endExclusive, length, parallelism, executor));
+            } catch (RuntimeException | Error e) {
+                synchronized (recent) {
+                    if (cache.remove(key, created)) {
+                        reservedBytes -= key.bytes;
+                    }
+                }
+                created.completeExceptionally(e);
+            }
+        }
+        FrameWindowTables tables;
+        try {
+            tables = future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            } else if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        touch(key, future);
+        return tables;
+    }
+
+    /**
+     * specがLOW_BITでなければ例外を投げる．
+     */
+    public static FrameWindowTables get(ObservationSpec spec, int designated, long startInclusive,
+            long endExclusive, int length, int parallelism, Executor executor) {
+        if (!spec.isLowBit()) {
+            throw new IllegalArgumentException("Frame window tables support only the low bit observation.");
+        }
+        return get(designated, startInclusive, endExclusive, length, parallelism, executor);
+    }
+
+    /**
+     * keyの分を確保する．足りなければ計算の終わったものを使っていない順に追い出す．recentのロックの中で呼ぶ．
+     */
+    private static void reserve(Key key) {
+        for (Iterator<Key> it = recent.keySet().iterator(); MAX_BYTES - reservedBytes < key.bytes && it.hasNext();) {
+            evict(it);
+        }
+        if (MAX_BYTES - reservedBytes < key.bytes) {
+            throw new IllegalArgumentException(
+                    "Too many frames for frame window tables: frames [%d, %d) of %d motions need %d MiB, "
+                            .formatted(key.startInclusive, key.endExclusive, key.length, key.bytes >>> 20)
+                            + "but other tables use %d MiB of %d MiB."
+                                    .formatted(reservedBytes >>> 20, MAX_BYTES >>> 20));
+        }
+        reservedBytes += key.bytes;
+    }
+
+    private static void evict(Iterator<Key> it) {
+        Key eldest = it.next();
+        it.remove();
+        cache.remove(eldest);
+        reservedBytes -= eldest.bytes;
+    }
+
+    private static void touch(Key key, CompletableFuture<FrameWindowTables> future) {
+        synchronized (recent) {
+            /* 待っている間に追い出されていれば覚え直さない */
+            if (cache.get(key) != future) {
+                return;
+            }
+            recent.put(key, Boolean.TRUE);
+            for (Iterator<Key> it = recent.keySet().iterator(); CACHE_SIZE < recent.size();) {
+                evict(it);
+            }
+        }
+    }
+
+    /**
+     * キャッシュにある表のバイト数の合計．
+     */
+    static long reservedBytes() {
+        synchronized (recent) {
+            return reservedBytes;
+        }
+    }
+
+    /**
+     * 範囲全体の表のバイト数．1つでMAX_BYTESを超えるときは例外を投げる．
+     */
+    private static long bytes(int designated, long startInclusive, long endExclusive, int length) {
+        if (designated != 0 && designated != 1) {
+            throw new IllegalArgumentException("Designated must be 0 or 1.");
+        } else if (length < 1) {
+            throw new IllegalArgumentException("Motions cannot be empty.");
+        }
+        long frames = Math.max(0, endExclusive - startInclusive);
+        long bytes = bytesPerFrame(length);
+        if (endExclusive > startInclusive && (frames <= 0 || MAX_BYTES / bytes < frames)) {
+            throw new IllegalArgumentException(
+                    "Too many frames for frame window tables: frames [%d, %d) of %d motions need more than %d MiB."
+                            .formatted(startInclusive, endExclusive, length, MAX_BYTES >>> 20));
+        }
+        return frames * bytes;
+    }
+
+    public static FrameWindowTables compute(int designated, long startInclusive, long endExclusive, int length,
+            int parallelism, Executor executor) {
+        bytes(designated, startInclusive, endExclusive, length);
+        FrameWindowTables tables = new FrameWindowTables(designated, startInclusive, endExclusive, length);
+        try (SolverMetrics.Phase phase = SolverMetrics.phase("tables")) {
+            FrameRangeSearch.search(startInclusive, endExclusive, parallelism, executor, (start, end) -> {
+                tables.fill(start, end);
+                return null;
+            });
+            phase.frames(tables.inverse.length);
+        }
+        return tables;
+    }
+
+    private void fill(long start, long end) {
+        long[][] window = new long[length][1];
+        for (long frame = start; frame < end; frame++) {
+            int offset = (int) (frame - startInclusive);
+            for (int t = 0; t < length; t++) {
+                window[t][0] = unknown[offset + t];
+            }
+            /* 行が未知数，列が観測 */
+            PackedBinaryMatrix f = PackedBinaryMatrix.getInstance(length, 64, window, false).transposed();
+            SolveTables solveTables = SolveTables.compute(f);
+            long[] g = new long[length];
+            for (int t = 0; t < length; t++) {
+                g[t] = solveTables.inverse.mat[t][0];
+            }
+            long[] toSolution = new long[64];
+            for (int j = 0; j < 64; j++) {
+                long x = 0;
+                for (int t = 0; t < length; t++) {
+                    x ^= -((known[offset + t] >>> j) & 1) & g[t];
+                }
+                toSolution[j] = x;
+            }
+            long[] basis = new long[solveTables.nullBasis.length];
+            for (int k = 0; k < basis.length; k++) {
+                basis[k] = solveTables.nullBasis[k][0];
+            }
+            inverse[offset] = g;
+            knownToSolution[offset] = toSolution;
+            nullBasis[offset] = basis;
+        }
+    }
+
+    /**
+     * 既知の半分がsのときの{@link SeedSolver#findSingleState}と同じ組を返す．
+     * フレームの中での解の順序は{@link SeedSolver#findSingleState}と異なることがある．
+     */
+    public CandidateSet solve(byte[] motions, long s, LongPairPredicate filter) {
+        return solve(motions, new long[] { s }, filter).get(0);
+    }
+
+    /**
+     * 既知の半分の候補knownsそれぞれについて解く．モーションに依る部分はフレームごとに一度だけ計算する．
+     */
+    public List<CandidateSet> solve(byte[] motions, long[] knowns, LongPairPredicate filter) {
+        if (motions.length != length) {
+            throw new IllegalArgumentException("The length of the motions must be %d.".formatted(length));
+        }
+        long[] m = PackedBinaryMatrix.pack(motions);
+        List<CandidateSet> results = new ArrayList<>(knowns.length);
+        for (int q = 0; q < knowns.length; q++) {
+            results.add(new CandidateSet());
+        }
+        try (SolverMetrics.Phase phase = SolverMetrics.phase("scan")) {
+            long candidates = 0;
+            for (int index = 0; index < inverse.length; index++) {
+                long frame = startInclusive + index;
+                long[] g = inverse[index];
+                long[] toSolution = knownToSolution[index];
+                long[] basis = nullBasis[index];
+                /* モーションに依る部分 */
+                long mg = 0;
+                for (int t = 0; t < length; t++) {
+                    mg ^= -((m[t >>> 6] >>> t) & 1) & g[t];
+                }
+                for (int q = 0; q < knowns.length; q++) {
+                    long s = knowns[q];
+                    long x = mg;
+                    for (long bits = s; bits != 0; bits &= bits - 1) {
+                        x ^= toSolution[Long.numberOfTrailingZeros(bits)];
+                    }
+                    /* A・x = K・s ^ mなら解を持つ */
+                    boolean consistent = true;
+                    for (int t = 0; t < length && consistent; t++) {
+                        long y = Long.bitCount(unknown[index + t] & x) ^ Long.bitCount(known[index + t] & s);
+                        consistent = (y & 1) == ((m[t >>> 6] >>> t) & 1);
+                    }
+                    if (!consistent) {
+                        continue;
+                    }
+                    if (basis.length > GrayCodeSpliterator.MAX_DIMENSION
+                            || (filter.isTrivial() && basis.length > SeedSolver.MAX_MATERIALIZED_RANK))
+                        throw new TooFewMotionsException("Too less motions.");
+                    long[] base = designated == 0 ? new long[] { s, x } : new long[] { x, s };
+                    long[][] vectors = new long[basis.length][2];
+                    for (int k = 0; k < basis.length; k++) {
+                        vectors[k][1 - designated] = basis[k];
+                    }
+                    CandidateSet found = results.get(q);
+                    long before = found.size();
+                    new GrayCodeSpliterator(base, vectors).forEachRemaining((s0, s1) -> {
+                        if (filter.test(s0, s1)) {
+                            found.add(frame, s0, s1);
+                        }
+                    });
+                    candidates += found.size() - before;
+                }
+            }
+            phase.frames((long) inverse.length * knowns.length).candidates(candidates);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,106 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import jp.co.pattirudon.xoroshiroseed.config.SeedSolverConfig;
+import jp.co.pattirudon.xoroshiroseed.metrics.SolverMetrics;
+import jp.co.pattirudon.xoroshiroseed.random.XoroshiroTransition;
+
+/**
+ * JSONで与えられた設定を解き，結果をJSONで返す．バッチモードとサーバーモードで共有する．
+ * 失敗したときは"error"にメッセージを，"errorType"に入力の誤りか内部の誤りかを入れる．
+ */
+public class JsonSolver {
+    /* 失敗したときの"errorType"の値 */
+    public static final String INPUT_ERROR = "input";
+    public static final String INTERNAL_ERROR = "internal";
+
+    private final ObjectMapper mapper;
+
+    public JsonSolver(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    @FunctionalInterface
+    public interface JsonSource {
+        JsonNode read() throws IOException;
+    }
+
+    /**
+     * 設定を一つ解き，結果を1行のJSONにする．"id"があればそれを，なければdefaultIdをidとする．
+     */
+    public ObjectNode solve(String defaultId, JsonSource source) {
+        return solve(defaultId, source, false);
+    }
+
+    /**
+     * @param metrics trueなら{@link SolverMetrics}の値を"metrics"として結果に含める
+     */
+    public ObjectNode solve(String defaultId, JsonSource source, boolean metrics) {
+        ObjectNode result = mapper.createObjectNode();
+        result.put("id", defaultId);
+        long start = System.nanoTime();
+        SolverMetrics m = metrics ? new SolverMetrics() : SolverMetrics.current();
+        try (SolverMetrics.Scope scope = m.attach()) {
+            SeedSolverConfig config;
+            try (SolverMetrics.Phase phase = SolverMetrics.phase("parse")) {
+                JsonNode node = source.read();
+                if (node instanceof ObjectNode object && object.has("id")) {
+                    result.set("id", object.remove("id"));
+                }
+                config = mapper.treeToValue(node, SeedSolverConfig.class);
+            }
+            try (CandidateSet found = SeedSolver.search(config, 1, Runnable::run);
+                    SolverMetrics.Phase phase = SolverMetrics.phase("output")) {
+                result.set("results", toJson(found, config.motionFrames()));
+            }
+        } catch (IOException | RuntimeException e) {
+            result.put("error", String.valueOf(e.getMessage()));
+            result.put("errorType", isInputError(e) ? INPUT_ERROR : INTERNAL_ERROR);
+        }
+        result.put("elapsedMillis", (System.nanoTime() - start) / 1_000_000);
+        if (metrics) {
+            m.finish();
+            result.set("metrics", m.toJson(mapper));
+        }
+        return result;
+    }
+
+    /**
+     * 入力を直せば解けるはずの失敗かどうか．JSONとして読めない，設定が正しくない，モーションが少なすぎる，のいずれか．
+     */
+    public static boolean isInputError(Throwable e) {
+        return e instanceof JsonProcessingException || e instanceof IllegalArgumentException
+                || e instanceof TooFewMotionsException;
+    }
+
+    public ArrayNode toJson(CandidateSet found, int motionLength) {
+        ArrayNode results = mapper.createArrayNode();
+        for (long i = 0; i < found.size(); i++) {
+            long[] g = found.state(i);
+            long f = found.frame(i);
+            long[] s = XoroshiroTransition.move(g, f);
+            long[] e = XoroshiroTransition.move(s, motionLength);
+            ObjectNode r = results.addObject();
+            r.set("gameStart", state(g));
+            r.put("motionStartFrame", f);
+            r.set("motionStart", state(s));
+            r.put("motionEndFrame", f + motionLength);
+            r.set("motionEnd", state(e));
+        }
+        return results;
+    }
+
+    private ArrayNode state(long[] s) {
+        ArrayNode a = mapper.createArrayNode();
+        a.add("%016x".formatted(s[0]));
+        a.add("%016x".formatted(s[1]));
+        return a;
+    }
+}
@@ -1,10 +1,17 @@
 package jp.co.pattirudon.xoroshiroseed;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.FileHandler;
 import java.util.logging.Formatter;
@@ -16,15 +23,58 @@ import java.util.logging.Logger;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import jp.co.pattirudon.xoroshiroseed.config.SeedSolverConfig;
+import jp.co.pattirudon.xoroshiroseed.metrics.SolverMetrics;
+import jp.co.pattirudon.xoroshiroseed.sink.ResultFormat;
+import jp.co.pattirudon.xoroshiroseed.sink.ResultSink;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
 
 @Command(version = "1.0", description = "Overworld prng seed determination tool for pokemon sword/shield", mixinStandardHelpOptions = true, sortOptions = false)
 public class Main implements Callable<Integer> {
-    @Parameters(paramLabel = "PATH", description = "Path to a config json file.")
+    @Parameters(paramLabel = "PATH", arity = "0..1", description = "Path to a config json file. With --batch, a directory of config json files or a JSON Lines file (\"-\" for stdin).")
     Path configFilePath;
 
+    @Option(names = { "--batch" }, description = "Solve many configs in one run and write the results as JSON Lines.")
+    boolean batch;
+
+    @Option(names = { "-o", "--output" }, paramLabel = "FILE", description = "File to write all results to. Batch results default to stdout.")
+    Path outputPath;
+
+    @Option(names = { "--format" }, paramLabel = "FORMAT", description = "Format of the results written to --output for a single config: ${COMPLETION-CANDIDATES}. Default: ${DEFAULT-VALUE}.", defaultValue = "CSV")
+    ResultFormat format;
+
+    @Option(names = { "-w", "--workers" }, paramLabel = "N", description = "Number of configs solved at the same time in batch or server mode. Default: number of processors.")
+    Integer workers;
+
+    @Option(names = { "--server" }, paramLabel = "PORT", description = "Listen on the loopback address and solve configs POSTed to /solve.")
+    Integer serverPort;
+
+    @Option(names = { "--queue" }, paramLabel = "N", description = "Number of requests waiting for a worker in server mode before new ones are rejected. Default: ${DEFAULT-VALUE}.", defaultValue = "16")
+    int queue;
+
+    @Spec
+    CommandSpec spec;
+
+    @Option(names = { "-t", "--threads" }, paramLabel = "N", description = "Number of threads to search frames with. Overrides \"threads\" in the config.")
+    Integer threads;
+
+    @Option(names = { "--metrics" }, description = "Report per-phase timings, frames scanned per second, null rank, candidates and allocated bytes as JSON.")
+    boolean metrics;
+
+    @Option(names = { "--table-dir" }, paramLabel = "DIR", description = "Directory to store precomputed tables in and reuse them from. Without it, tables are kept in memory only.")
+    Path tableDirectory;
+
+    @Option(names = { "--index" }, paramLabel = "FILE", description = "Frame window index built by --build-index to look up frames of its state with. May be repeated.")
+    List<Path> indexPaths;
+
+    @Option(names = { "--build-index" }, paramLabel = "FILE", description = "Build a frame window index for s0, s1 and the frame range of the config, and write it to FILE.")
+    Path buildIndexPath;
+
     public static void main(String[] args) {
         int exitCode = new CommandLine(new Main()).execute(args);
         System.exit(exitCode);
@@ -32,15 +82,103 @@ public class Main implements Callable<Integer> {
 
     @Override
     public Integer call() throws Exception {
+        SolveTableStore.setDefault(new SolveTableStore(tableDirectory));
+        if (indexPaths != null) {
+            for (Path path : indexPaths) {
+                FrameWindowIndex.register(FrameWindowIndex.open(path));
+            }
+        }
+        if (serverPort != null) {
+            return callServer();
+        }
+        if (configFilePath == null) {
+            throw new ParameterException(spec.commandLine(), "Missing required parameter: 'PATH'");
+        }
+        if (batch) {
+            return callBatch();
+        }
+        if (buildIndexPath != null) {
+            return callBuildIndex();
+        }
         Logger logger = getLogger("result.%g.log");
         long start = System.currentTimeMillis();
-        InputStream is = Files.newInputStream(configFilePath);
         ObjectMapper mapper = new ObjectMapper();
-        // mapper.configure(DeserializationFeature.FAIL_ON_MISSING_CREATOR_PROPERTIES, true);
-        SeedSolverConfig config = mapper.readValue(is, SeedSolverConfig.class);
-        SeedSolver.list(config, logger);
+        SolverMetrics m = metrics ? new SolverMetrics() : SolverMetrics.current();
+        try (SolverMetrics.Scope scope = m.attach()) {
+            SeedSolverConfig config;
+            try (SolverMetrics.Phase phase = SolverMetrics.phase("parse");
+                    InputStream is = Files.newInputStream(configFilePath)) {
+                // mapper.configure(DeserializationFeature.FAIL_ON_MISSING_CREATOR_PROPERTIES, true);
+                config = mapper.readValue(is, SeedSolverConfig.class);
+            }
+            if (threads != null) {
+                config.setThreads(threads);
+            }
+            if (outputPath == null) {
+                SeedSolver.list(config, logger);
+            } else {
+                try (ResultSink sink = format.open(outputPath, config.motionFrames())) {
+                    SeedSolver.list(config, logger, sink);
+                }
+            }
+        }
         long end = System.currentTimeMillis();
         logger.config("Finish. [%d ms]".formatted(end - start));
+        if (metrics) {
+            m.finish();
+            logger.config("Metrics: " + mapper.writeValueAsString(m.toJson(mapper)));
+        }
+        return 0;
+    }
+
+    private Integer callBuildIndex() throws Exception {
+        long start = System.currentTimeMillis();
+        SeedSolverConfig config;
+        try (InputStream is = Files.newInputStream(configFilePath)) {
+            config = new ObjectMapper().readValue(is, SeedSolverConfig.class);
+        }
+        if (config.s0.isEmpty() || config.s1.isEmpty() || config.frame == null) {
+            throw new ParameterException(spec.commandLine(), "--build-index needs s0, s1 and frame in the config.");
+        }
+        FrameWindowIndex index = FrameWindowIndex.build(config.s0.getAsLong(), config.s1.getAsLong(),
+                config.frame.startInclusive, config.frame.endExclusive);
+        index.write(buildIndexPath);
+        long end = System.currentTimeMillis();
+        System.err.println("Finish indexing %d frames. [%d ms]".formatted(index.frames(), end - start));
+        return 0;
+    }
+
+    private Integer callServer() throws Exception {
+        int n = workers == null ? Runtime.getRuntime().availableProcessors() : workers;
+        SolverServer server = new SolverServer(serverPort, n, queue);
+        server.warmUp();
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            stopped.countDown();
+        }));
+        server.start();
+        System.err.println("Listening on http://%s:%d/solve".formatted(InetAddress.getLoopbackAddress().getHostAddress(),
+                server.port()));
+        stopped.await();
+        return 0;
+    }
+
+    private Integer callBatch() throws Exception {
+        long start = System.currentTimeMillis();
+        int n = workers == null ? Runtime.getRuntime().availableProcessors() : workers;
+        BatchRunner runner = new BatchRunner(n, metrics);
+        long count;
+        if (outputPath == null) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            count = runner.run(configFilePath, writer);
+        } else {
+            try (Writer writer = Files.newBufferedWriter(outputPath)) {
+                count = runner.run(configFilePath, writer);
+            }
+        }
+        long end = System.currentTimeMillis();
+        System.err.println("Finish %d configs. [%d ms]".formatted(count, end - start));
         return 0;
     }
 
@@ -0,0 +1,85 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import jp.co.pattirudon.xoroshiroseed.matrices.PackedBinaryMatrix;
+
+/**
+ * 直近motions.length個のモーションを64ビットずつのシフトレジスタに保持し，motionsと比較する．
+ * レジスタの第kビットは窓のk番目(古い方から数えて)のモーション．
+ */
+public class MotionMatcher {
+    public final int length;
+    private final int words;
+    private final long[] pattern;
+    private final long[] window;
+    private final int topBit;
+    private long pushed = 0;
+
+    public MotionMatcher(byte[] motions) {
+        if (motions.length == 0) {
+            throw new IllegalArgumentException("Motions cannot be empty.");
+        }
+        this.length = motions.length;
+        this.pattern = PackedBinaryMatrix.pack(motions);
+        this.words = pattern.length;
+        this.window = new long[words];
+        this.topBit = (length - 1) & 63;
+    }
+
+    /**
+     * 最新のモーションを追加し，最も古いモーションを捨てる．
+     * @param bit 0か1
+     */
+    public void push(int bit) {
+        int last = words - 1;
+        for (int w = 0; w < last; w++) {
+            window[w] = (window[w] >>> 1) | (window[w + 1] << 63);
+        }
+        window[last] = (window[last] >>> 1) | ((bit & 1L) << topBit);
+        pushed++;
+    }
+
+    /**
+     * 直近length個のモーションとmotionsのハミング距離．まだlength個そろっていなければlength + 1．
+     */
+    public int distance() {
+        if (pushed < length) {
+            return length + 1;
+        }
+        int d = 0;
+        for (int w = 0; w < words; w++) {
+            d += Long.bitCount(window[w] ^ pattern[w]);
+        }
+        return d;
+    }
+
+    /**
+     * 直近length個のモーションとmotionsが異なる位置を昇順に返す．
+     */
+    public int[] mismatches() {
+        int[] positions = new int[distance()];
+        int k = 0;
+        for (int w = 0; w < words; w++) {
+            long x = window[w] ^ pattern[w];
+            while (x != 0) {
+                positions[k++] = (w << 6) + Long.numberOfTrailingZeros(x);
+                x &= x - 1;
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * 直近length個のモーションがmotionsと一致するかどうか．
+     */
+    public boolean matches() {
+        if (pushed < length) {
+            return false;
+        }
+        for (int w = 0; w < words; w++) {
+            if (window[w] != pattern[w]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,158 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import jp.co.pattirudon.xoroshiroseed.matrices.GrayCodeSpliterator;
+import jp.co.pattirudon.xoroshiroseed.random.LowBitCoefficients;
+
+/**
+ * モーションを1フレームずつ受け取りながら，最初のモーションのフレームの状態を解く．
+ * <p>
+ * 各フレームの式の係数は{@link LowBitCoefficients}で求め，既約な階段行列をピボットの列ごとに保持する．
+ * 新しい式はピボットの列のビットだけを消せば簡約でき，ピボットになる列を他の行から消すので，
+ * 1ビットあたりの演算は高々128行分で済む．階数が128になった時点で状態が一つに決まる．
+ */
+public class OnlineSolver {
+    /* ピボットの列pを持つ行．状態は{s0, s1}の順に詰めた128ビット */
+    private final long[] rows0 = new long[128];
+    private final long[] rows1 = new long[128];
+    private final long[] rhs = new long[2];
+    private final long[] pivots = new long[2];
+    private final LowBitCoefficients coefficients;
+    private int rank = 0;
+    private long observations = 0;
+    private boolean consistent = true;
+
+    public OnlineSolver() {
+        this(0);
+    }
+
+    /**
+     * @param frame 解く状態から数えた，最初に受け取るモーションのフレーム
+     */
+    public OnlineSolver(long frame) {
+        this.coefficients = new LowBitCoefficients(frame);
+    }
+
+    /**
+     * 次のフレームのモーションを追加する．
+     * @param bit 0か1
+     * @return 状態が一つに決まればその状態{s0, s1}，そうでなければnull
+     */
+    public long[] addObservation(int bit) {
+        long v0 = coefficients.s0();
+        long v1 = coefficients.s1();
+        long b = bit & 1L;
+        coefficients.next();
+        observations++;
+        /* 既約なので，ピボットの列のビットを消すだけで他のピボットの列は変わらない */
+        for (int w = 0; w < 2; w++) {
+            long hit = (w == 0 ? v0 : v1) & pivots[w];
+            while (hit != 0) {
+                int p = (w << 6) + Long.numberOfTrailingZeros(hit);
+                hit &= hit - 1;
+                v0 ^= rows0[p];
+                v1 ^= rows1[p];
+                b ^= (rhs[p >>> 6] >>> p) & 1;
+            }
+        }
+        if (v0 == 0 && v1 == 0) {
+            if (b != 0) {
+                consistent = false;
+            }
+            return state();
+        }
+        int p = v0 != 0 ? Long.numberOfTrailingZeros(v0) : 64 + Long.numberOfTrailingZeros(v1);
+        int pw = p >>> 6;
+        long pbit = 1L << p;
+        for (int w = 0; w < 2; w++) {
+            long others = pivots[w];
+            while (others != 0) {
+                int q = (w << 6) + Long.numberOfTrailingZeros(others);
+                others &= others - 1;
+                if (((pw == 0 ? rows0[q] : rows1[q]) & pbit) != 0) {
+                    rows0[q] ^= v0;
+                    rows1[q] ^= v1;
+                    rhs[q >>> 6] ^= b << q;
+                }
+            }
+        }
+        rows0[p] = v0;
+        rows1[p] = v1;
+        rhs[pw] |= b << p;
+        pivots[pw] |= pbit;
+        rank++;
+        return state();
+    }
+
+    public int rank() {
+        return rank;
+    }
+
+    public long observations() {
+        return observations;
+    }
+
+    public boolean isConsistent() {
+        return consistent;
+    }
+
+    /**
+     * 解の個数．矛盾していれば0，2^63以上ならLong.MAX_VALUE．
+     */
+    public long candidateCount() {
+        if (!consistent) {
+            return 0;
+        }
+        int nullRank = 128 - rank;
+        return nullRank < 63 ? 1L << nullRank : Long.MAX_VALUE;
+    }
+
+    /**
+     * 状態が一つに決まっていればその状態{s0, s1}，そうでなければnull．
+     */
+    public long[] state() {
+        if (!consistent || rank < 128) {
+            return null;
+        }
+        return new long[] { rhs[0], rhs[1] };
+    }
+
+    /**
+     * 今までのモーションと矛盾しない状態を列挙する．
+     */
+    public GrayCodeSpliterator candidates() {
+        if (consistent && 128 - rank > GrayCodeSpliterator.MAX_DIMENSION)
+            throw new TooFewMotionsException("Too less motions.");
+        return subspace().candidates();
+    }
+
+    /**
+     * 今までのモーションと矛盾しない状態全体．
+     */
+    public AffineSubspace subspace() {
+        if (!consistent) {
+            return AffineSubspace.empty();
+        }
+        /* 自由な列を0とした解と，自由な列ごとの零空間の基底 */
+        long[][] basis = new long[128 - rank][];
+        int k = 0;
+        for (int c = 0; c < 128; c++) {
+            if (((pivots[c >>> 6] >>> c) & 1) != 0) {
+                continue;
+            }
+            long[] v = new long[2];
+            v[c >>> 6] |= 1L << c;
+            for (int w = 0; w < 2; w++) {
+                long ps = pivots[w];
+                while (ps != 0) {
+                    int q = (w << 6) + Long.numberOfTrailingZeros(ps);
+                    ps &= ps - 1;
+                    if ((((c < 64 ? rows0[q] : rows1[q]) >>> c) & 1) != 0) {
+                        v[q >>> 6] |= 1L << q;
+                    }
+                }
+            }
+            basis[k++] = v;
+        }
+        return AffineSubspace.of(new long[] { rhs[0], rhs[1] }, basis);
+    }
+}
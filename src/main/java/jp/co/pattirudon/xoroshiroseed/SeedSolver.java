@@ -1,30 +1,47 @@
 package jp.co.pattirudon.xoroshiroseed;
 
-import java.util.AbstractMap.SimpleImmutableEntry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
-import java.util.stream.Stream;
 
 import jp.co.pattirudon.xoroshiroseed.config.SeedSolverConfig;
 import jp.co.pattirudon.xoroshiroseed.matrices.BinaryMatrix;
+import jp.co.pattirudon.xoroshiroseed.matrices.GrayCodeSpliterator;
+import jp.co.pattirudon.xoroshiroseed.matrices.LongPairPredicate;
+import jp.co.pattirudon.xoroshiroseed.matrices.PackedBinaryMatrix;
+import jp.co.pattirudon.xoroshiroseed.matrices.SlidingWindowBasis;
+import jp.co.pattirudon.xoroshiroseed.metrics.SolverMetrics;
+import jp.co.pattirudon.xoroshiroseed.random.LowBitCoefficients;
+import jp.co.pattirudon.xoroshiroseed.random.ObservationSpec;
 import jp.co.pattirudon.xoroshiroseed.random.Xoroshiro;
+import jp.co.pattirudon.xoroshiroseed.random.XoroshiroTransition;
+import jp.co.pattirudon.xoroshiroseed.sink.LoggerResultSink;
+import jp.co.pattirudon.xoroshiroseed.sink.ResultSink;
 
 public class SeedSolver {
+    /**
+     * 条件を指定せずに解をすべてリストにするときの，解空間の次元の上限．
+     */
+    public static final int MAX_MATERIALIZED_RANK = 24;
+
+    /**
+     * {@link #print}がloggerに書く件数．
+     */
+    public static final int PRINT_LENGTH = 30;
+
     static byte[] singleBits(long s0, long s1, int n) {
-        byte[] r = new byte[n];
-        Xoroshiro random = new Xoroshiro(s0, s1);
-        for (int i = 0; i < n; i++) {
-            r[i] = (byte) (random.nextInt() & 1);
-        }
-        return r;
+        long[] bits = new long[PackedBinaryMatrix.wordsFor(n)];
+        new Xoroshiro(s0, s1).fillLowBits(bits, n);
+        return PackedBinaryMatrix.unpack(bits, n);
     }
 
-    static BinaryMatrix singleBitsMatrix(int n) {
-        byte[][] mat = new byte[128][n];
+    static PackedBinaryMatrix packedSingleBitsMatrix(int n) {
+        long[][] mat = new long[128][PackedBinaryMatrix.wordsFor(n)];
         for (int i = 0; i < 128; i++) {
             long s0 = 0;
             long s1 = 0;
@@ -33,169 +50,283 @@ public class SeedSolver {
             } else {
                 s1 = 1L << (i - 64);
             }
-            Xoroshiro random = new Xoroshiro(s0, s1);
-            for (int j = 0; j < n; j++) {
-                mat[i][j] = (byte) (random.nextInt() & 1);
-            }
+            new Xoroshiro(s0, s1).fillLowBits(mat[i], n);
         }
-        return BinaryMatrix.getInstance(128, n, mat, false);
+        return PackedBinaryMatrix.getInstance(128, n, mat, false);
+    }
+
+    static BinaryMatrix singleBitsMatrix(int n) {
+        return BinaryMatrix.getInstance(packedSingleBitsMatrix(n));
     }
 
     public static List<long[]> solve(byte[] motions) {
-        BinaryMatrix f = singleBitsMatrix(motions.length);
-        BinaryMatrix g = f.generalizedInverse();
-        byte[] base = g.multiplyLeft(motions);
-        byte[] checkMotions = f.multiplyLeft(base);
-        if (Arrays.equals(motions, checkMotions)) {
-            BinaryMatrix h = f.multiplyRight(g).add(BinaryMatrix.ones(128));
-            byte[][] nullBasis = h.rowBasis();
-            int nullRank = nullBasis.length;
-            if (nullRank >= 16)
-                throw new IllegalStateException("Too less motions. Being not less than 128 recommended.");
-            long[] baseLongs = toUnsignedLongArrayBE(base);
-            long[][] nullLongBasis = new long[nullRank][];
-            for (int i = 0; i < nullLongBasis.length; i++) {
-                nullLongBasis[i] = toUnsignedLongArrayBE(nullBasis[i]);
-            }
-            List<long[]> affine = new ArrayList<>(1 << nullRank);
-            for (int i = 0; i < (1 << nullRank); i++) {
-                long[] p = Arrays.copyOf(baseLongs, baseLongs.length);
-                affine.add(p);
-                for (int j = 0; j < nullRank; j++) {
-                    int b = (i >>> j) & 1;
-                    if (b == 1) {
-                        for (int k = 0; k < p.length; k++) {
-                            p[k] ^= nullLongBasis[j][k];
-                        }
-                    }
-                }
-            }
-            return affine;
-        } else {
-            return new ArrayList<long[]>(0);
-        }
+        return solve(motions, SolveTableStore.getDefault());
     }
 
-    private static long toUnsignedLongLE(byte[] b) {
-        if (b.length != 64) {
-            throw new IllegalArgumentException("The lenght of byte array must be 64.");
+    public static List<long[]> solve(byte[] motions, SolveTableStore store) {
+        GrayCodeSpliterator candidates = candidates(motions, store);
+        if (candidates.dimension() > MAX_MATERIALIZED_RANK)
+            throw new TooFewMotionsException("Too less motions. Being not less than 128 recommended.");
+        List<long[]> affine = new ArrayList<>();
+        try (SolverMetrics.Phase phase = SolverMetrics.phase("enumerate")) {
+            candidates.forEachRemaining((s0, s1) -> affine.add(new long[] { s0, s1 }));
+            phase.candidates(affine.size());
         }
-        long n = 0L;
-        for (int i = 0; i < 64; i++) {
-            n |= (1L & b[i]) << i;
+        return affine;
+    }
+
+    /**
+     * 解のうちfilterを満たすものだけを返す．解の列挙はForkJoinPool.commonPool()で並列に行う．
+     */
+    public static List<long[]> solve(byte[] motions, LongPairPredicate filter) {
+        return solve(motions, filter, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 解のうちfilterを満たすものだけを返す．解の列挙はpoolで並列に行う．
+     */
+    public static List<long[]> solve(byte[] motions, LongPairPredicate filter, ForkJoinPool pool) {
+        GrayCodeSpliterator candidates = candidates(motions);
+        try (SolverMetrics.Phase phase = SolverMetrics.phase("enumerate")) {
+            List<long[]> survivors = candidates.filter(filter, pool);
+            phase.candidates(survivors.size());
+            return survivors;
         }
-        return n;
     }
 
-    private static long[] toUnsignedLongArrayBE(byte[] b) {
-        if (b.length % 64 != 0) {
-            throw new IllegalArgumentException("The lenght of byte array must be a multiple of 64.");
+    /**
+     * {@link #solve(byte[])}の解をグレイコード順に遅延評価で列挙する．
+     */
+    public static GrayCodeSpliterator candidates(byte[] motions) {
+        return candidates(motions, SolveTableStore.getDefault());
+    }
+
+    public static GrayCodeSpliterator candidates(byte[] motions, SolveTableStore store) {
+        return candidates(motions, ObservationSpec.LOW_BIT, store);
+    }
+
+    /**
+     * 各フレームでspecの式を観測したモーションの解を列挙する．
+     */
+    public static GrayCodeSpliterator candidates(byte[] motions, ObservationSpec spec, SolveTableStore store) {
+        AffineSubspace solutions = subspace(motions, spec, store);
+        if (solutions.dimension() > GrayCodeSpliterator.MAX_DIMENSION)
+            throw new TooFewMotionsException("Too less motions. Being not less than 128 recommended.");
+        return solutions.candidates();
+    }
+
+    /**
+     * {@link #solve(byte[])}の解全体．列挙できないほど大きくてもよい．
+     */
+    public static AffineSubspace subspace(byte[] motions) {
+        return subspace(motions, ObservationSpec.LOW_BIT, SolveTableStore.getDefault());
+    }
+
+    public static AffineSubspace subspace(byte[] motions, ObservationSpec spec, SolveTableStore store) {
+        SolveTables tables;
+        try (SolverMetrics.Phase phase = SolverMetrics.phase("tables")) {
+            tables = store.get(spec, spec.frames(motions.length));
         }
-        long[] a = new long[b.length / 64];
-        for (int i = 0; i < a.length; i++) {
-            byte[] sub = Arrays.copyOfRange(b, 64 * i, 64 * (i + 1));
-            a[i] = toUnsignedLongLE(sub);
+        long[] packedMotions = PackedBinaryMatrix.pack(motions);
+        SolverMetrics.current().recordNullRank(tables.nullBasis.length);
+        if (tables.isConsistent(packedMotions)) {
+            /* 128ビットの状態は{s0, s1}の順に詰められている */
+            return AffineSubspace.of(tables.particularSolution(packedMotions), tables.nullBasis);
+        } else {
+            return AffineSubspace.empty();
         }
-        return a;
     }
 
-    public static List<Integer> findMotionStartFrames(byte[] motions, long s0, long s1, int frameStartInclusive,
-            int frameEndExclusive) {
-        Byte[] motionsBoxed = new Byte[motions.length];
-        Arrays.setAll(motionsBoxed, i -> motions[i]);
-        Xoroshiro random = new Xoroshiro(s0, s1);
-        for (int i = 0; i < frameStartInclusive; i++) {
-            random.nextInt();
-        }
-        LinkedList<Byte> _motions = new LinkedList<>();
-        List<Integer> foundFrames = new ArrayList<>();
-        for (int i = frameStartInclusive; i < frameEndExclusive + motionsBoxed.length; i++) {
-            if (motionsBoxed.length <= _motions.size()) {
-                if (Arrays.equals(motionsBoxed, _motions.toArray(Byte[]::new))) {
-                    foundFrames.add(i - motionsBoxed.length);
+    public static List<Long> findMotionStartFrames(byte[] motions, long s0, long s1, long frameStartInclusive,
+            long frameEndExclusive) {
+        return findMotionStartFrames(motions, ObservationSpec.LOW_BIT, s0, s1, frameStartInclusive,
+                frameEndExclusive);
+    }
+
+    public static List<Long> findMotionStartFrames(byte[] motions, ObservationSpec spec, long s0, long s1,
+            long frameStartInclusive, long frameEndExclusive) {
+        int frames = spec.frames(motions.length);
+        int k = spec.size();
+        boolean lowBit = spec.isLowBit();
+        try (SolverMetrics.Phase phase = SolverMetrics.phase("scan")) {
+            long[] t = XoroshiroTransition.move(new long[] { s0, s1 }, frameStartInclusive);
+            long t0 = t[0];
+            long t1 = t[1];
+            MotionMatcher matcher = new MotionMatcher(motions);
+            List<Long> foundFrames = new ArrayList<>();
+            for (long i = frameStartInclusive; i < frameEndExclusive + frames; i++) {
+                if (matcher.matches()) {
+                    foundFrames.add(i - frames);
+                }
+                if (lowBit) {
+                    matcher.push(Xoroshiro.lowBit(t0, t1));
+                } else {
+                    for (int j = 0; j < k; j++) {
+                        matcher.push(Long.bitCount((t0 & spec.mask0(j)) ^ (t1 & spec.mask1(j))) & 1);
+                    }
                 }
-                _motions.removeFirst();
+                long n0 = Xoroshiro.nextS0(t0, t1);
+                t1 = Xoroshiro.nextS1(t0, t1);
+                t0 = n0;
             }
-            byte b = (byte) (random.nextInt() & 1);
-            _motions.add(b);
+            phase.frames(Math.max(0, frameEndExclusive - frameStartInclusive)).candidates(foundFrames.size());
+            return foundFrames;
         }
+    }
+
+    public static List<Long> findMotionStartFrames(byte[] motions, long s0, long s1, long frameStartInclusive,
+            long frameEndExclusive, int parallelism, Executor executor) {
+        return findMotionStartFrames(motions, ObservationSpec.LOW_BIT, s0, s1, frameStartInclusive,
+                frameEndExclusive, parallelism, executor);
+    }
+
+    public static List<Long> findMotionStartFrames(byte[] motions, ObservationSpec spec, long s0, long s1,
+            long frameStartInclusive, long frameEndExclusive, int parallelism, Executor executor) {
+        List<List<Long>> chunks = FrameRangeSearch.search(frameStartInclusive, frameEndExclusive, parallelism,
+                executor, (start, end) -> findMotionStartFrames(motions, spec, s0, s1, start, end));
+        List<Long> foundFrames = new ArrayList<>();
+        chunks.forEach(foundFrames::addAll);
         return foundFrames;
     }
 
-    public static Entry<List<Integer>, List<long[]>> findSingleState(byte[] motions, int designated, long s,
-            int frameStartInclusive, int frameEndExclusive) {
-        List<Xoroshiro> movingXoroshiros = new ArrayList<>(64);
-        Xoroshiro baseXoroshiro;
-        for (int i = 0; i < 64; i++) {
-            long t = 1L << i;
-            long s0 = new long[] { 0, t }[designated];
-            long s1 = new long[] { t, 0 }[designated];
-            Xoroshiro random = new Xoroshiro(s0, s1);
-            movingXoroshiros.add(random);
-        }
-        {
-            long s0 = new long[] { s, 0 }[designated];
-            long s1 = new long[] { 0, s }[designated];
-            baseXoroshiro = new Xoroshiro(s0, s1);
-        }
-        for (int i = 0; i < frameStartInclusive; i++) {
-            movingXoroshiros.forEach(x -> x.nextInt());
-            baseXoroshiro.nextInt();
+    public static CandidateSet findSingleState(byte[] motions, int designated, long s,
+            long frameStartInclusive, long frameEndExclusive) {
+        return findSingleState(motions, designated, s, frameStartInclusive, frameEndExclusive,
+                LongPairPredicate.all());
+    }
+
+    /**
+     * 見つかった状態のうちfilterを満たすものだけを返す．filterは各フレームの解の列挙の中で呼ぶ．
+     */
+    public static CandidateSet findSingleState(byte[] motions, int designated, long s,
+            long frameStartInclusive, long frameEndExclusive, LongPairPredicate filter) {
+        return findSingleState(motions, ObservationSpec.LOW_BIT, designated, s, frameStartInclusive,
+                frameEndExclusive, filter);
+    }
+
+    /**
+     * 各フレームでspecの式を観測したモーションについて解く．1フレームの式が多いほど窓が短くなり，
+     * 解を持たないフレームも早く判定できる．
+     */
+    public static CandidateSet findSingleState(byte[] motions, ObservationSpec spec, int designated, long s,
+            long frameStartInclusive, long frameEndExclusive, LongPairPredicate filter) {
+        try (SolverMetrics.Phase phase = SolverMetrics.phase("scan")) {
+            CandidateSet found = scanSingleState(motions, spec, designated, s, frameStartInclusive,
+                    frameEndExclusive, filter);
+            long frames = Math.max(0, frameEndExclusive - frameStartInclusive);
+            phase.frames(frames).candidates(found.size());
+            SolverMetrics.current().addWindowUpdates((frames + spec.frames(motions.length)) * spec.size());
+            return found;
         }
-        LinkedList<byte[]> queueMatrix = new LinkedList<>();
-        LinkedList<Byte> baseQueue = new LinkedList<>();
-        List<long[]> gameStart = new ArrayList<>();
-        List<Integer> foundFrames = new ArrayList<>();
-        for (int i = frameStartInclusive; i < frameEndExclusive + motions.length; i++) {
-            if (motions.length <= queueMatrix.size()) {
-                BinaryMatrix f = BinaryMatrix.getInstance(queueMatrix.size(), movingXoroshiros.size(),
-                        queueMatrix.toArray(byte[][]::new), false).transposed();
-                queueMatrix.removeFirst();
-                BinaryMatrix g = f.generalizedInverse();
-                byte[] base = new byte[baseQueue.size()];
-                for (int j = 0; j < baseQueue.size(); j++) {
-                    base[j] = baseQueue.get(j);
+    }
+
+    private static CandidateSet scanSingleState(byte[] motions, ObservationSpec spec, int designated, long s,
+            long frameStartInclusive, long frameEndExclusive, LongPairPredicate filter) {
+        int motionFrames = spec.frames(motions.length);
+        LowBitCoefficients[] coefficients = spec.coefficients(frameStartInclusive);
+        SlidingWindowBasis window = new SlidingWindowBasis(motions);
+        CandidateSet found = new CandidateSet();
+        SolverMetrics metrics = SolverMetrics.current();
+        for (long i = frameStartInclusive; i < frameEndExclusive + motionFrames; i++) {
+            if (window.isFull() && window.isConsistent()) {
+                long[] nullBasis = window.nullBasis();
+                int nullRank = nullBasis.length;
+                metrics.recordNullRank(nullRank);
+                if (nullRank > GrayCodeSpliterator.MAX_DIMENSION
+                        || (filter.isTrivial() && nullRank > MAX_MATERIALIZED_RANK))
+                    throw new TooFewMotionsException("Too less motions.");
+                long xLong = window.particularSolution();
+                long[] base = new long[] { s, xLong };
+                long[][] basis = new long[nullRank][2];
+                for (int k = 0; k < nullRank; k++) {
+                    basis[k][1] = nullBasis[k];
                 }
-                baseQueue.removeFirst();
-                byte[] y = add(motions, base);
-                byte[] x = g.multiplyLeft(y);
-                byte[] check = f.multiplyLeft(x);
-                if (Arrays.equals(y, check)) {
-                    BinaryMatrix h = f.multiplyRight(g).add(BinaryMatrix.ones(movingXoroshiros.size()));
-                    byte[][] nullBasis = h.rowBasis();
-                    int nullRank = nullBasis.length;
-                    if (nullRank >= 16)
-                        throw new IllegalStateException("Too less motions.");
-                    long[] nullLongBasis = new long[nullRank];
-                    for (int j = 0; j < nullRank; j++) {
-                        nullLongBasis[j] = toUnsignedLongLE(nullBasis[j]);
-                    }
-                    long xLong = toUnsignedLongLE(x);
-                    for (int j = 0; j < (1 << nullRank); j++) {
-                        long nullVector = 0;
-                        for (int k = 0; k < nullRank; k++) {
-                            int b = (j >>> k) & 1;
-                            if (b == 1) {
-                                nullVector ^= nullLongBasis[k];
-                            }
-                        }
-                        long s0 = new long[] { s, nullVector ^ xLong }[designated];
-                        long s1 = new long[] { nullVector ^ xLong, s }[designated];
-                        foundFrames.add(i - motions.length);
-                        gameStart.add(new long[] { s0, s1 });
+                if (designated == 1) {
+                    base = new long[] { xLong, s };
+                    for (long[] v : basis) {
+                        v[0] = v[1];
+                        v[1] = 0;
                     }
                 }
+                long frame = i - motionFrames;
+                new GrayCodeSpliterator(base, basis).forEachRemaining((s0, s1) -> {
+                    if (filter.test(s0, s1)) {
+                        found.add(frame, s0, s1);
+                    }
+                });
             }
-            byte[] row = new byte[movingXoroshiros.size()];
-            queueMatrix.addLast(row);
-            for (int j = 0; j < movingXoroshiros.size(); j++) {
-                Xoroshiro x = movingXoroshiros.get(j);
-                row[j] = (byte) (x.nextInt() & 1);
+            /* 未知の側の係数が行，既知の側からの寄与が右辺 */
+            for (LowBitCoefficients c : coefficients) {
+                long known = designated == 0 ? c.s0() : c.s1();
+                long row = designated == 0 ? c.s1() : c.s0();
+                window.push(row, Long.bitCount(known & s) & 1);
+                c.next();
             }
-            byte b = (byte) (baseXoroshiro.nextInt() & 1);
-            baseQueue.addLast(b);
         }
-        return new SimpleImmutableEntry<>(foundFrames, gameStart);
+        return found;
+    }
+
+    /**
+     * 既知の半分の候補knownsそれぞれについて{@link #findSingleState}を解く．
+     * フレームごとの表は{@link FrameWindowTables}として使い回すので，候補が多いほど速い．
+     */
+    public static List<CandidateSet> findSingleStates(byte[] motions, int designated, long[] knowns,
+            long frameStartInclusive, long frameEndExclusive) {
+        return findSingleStates(motions, designated, knowns, frameStartInclusive, frameEndExclusive, 1,
+                Runnable::run);
+    }
+
+    public static List<CandidateSet> findSingleStates(byte[] motions, int designated, long[] knowns,
+            long frameStartInclusive, long frameEndExclusive, int parallelism, Executor executor) {
+        FrameWindowTables tables = FrameWindowTables.get(designated, frameStartInclusive, frameEndExclusive,
+                motions.length, parallelism, executor);
+        return tables.solve(motions, knowns, LongPairPredicate.all());
+    }
+
+    /**
+     * specがLOW_BITでなければ{@link FrameWindowTables}を使えないので，候補ごとに{@link #findSingleState}を解く．
+     */
+    public static List<CandidateSet> findSingleStates(byte[] motions, ObservationSpec spec, int designated,
+            long[] knowns, long frameStartInclusive, long frameEndExclusive, int parallelism, Executor executor) {
+        if (spec.isLowBit()) {
+            return findSingleStates(motions, designated, knowns, frameStartInclusive, frameEndExclusive,
+                    parallelism, executor);
+        }
+        List<CandidateSet> results = new ArrayList<>(knowns.length);
+        for (long s : knowns) {
+            results.add(findSingleState(motions, spec, designated, s, frameStartInclusive, frameEndExclusive,
+                    LongPairPredicate.all(), parallelism, executor));
+        }
+        return results;
+    }
+
+    public static CandidateSet findSingleState(byte[] motions, int designated, long s,
+            long frameStartInclusive, long frameEndExclusive, int parallelism, Executor executor) {
+        return findSingleState(motions, designated, s, frameStartInclusive, frameEndExclusive,
+                LongPairPredicate.all(), parallelism, executor);
+    }
+
+    public static CandidateSet findSingleState(byte[] motions, int designated, long s,
+            long frameStartInclusive, long frameEndExclusive, LongPairPredicate filter, int parallelism,
+            Executor executor) {
+        return findSingleState(motions, ObservationSpec.LOW_BIT, designated, s, frameStartInclusive,
+                frameEndExclusive, filter, parallelism, executor);
+    }
+
+    public static CandidateSet findSingleState(byte[] motions, ObservationSpec spec, int designated, long s,
+            long frameStartInclusive, long frameEndExclusive, LongPairPredicate filter, int parallelism,
+            Executor executor) {
+        List<CandidateSet> chunks = FrameRangeSearch.search(frameStartInclusive, frameEndExclusive, parallelism,
+                executor, (start, end) -> findSingleState(motions, spec, designated, s, start, end, filter));
+        if (chunks.size() == 1) {
+            return chunks.get(0);
+        }
+        CandidateSet found = new CandidateSet();
+        for (CandidateSet chunk : chunks) {
+            found.addAll(chunk);
+            chunk.close();
+        }
+        return found;
     }
 
     public static byte[] add(byte[] a, byte[] b) {
@@ -210,80 +341,199 @@ public class SeedSolver {
     }
 
     public static void list(SeedSolverConfig config, Logger logger) {
+        try {
+            list(config, logger, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 探索してloggerに結果の一部を書き，sinkがnullでなければすべてをsinkに書き出す．
+     */
+    public static void list(SeedSolverConfig config, Logger logger, ResultSink sink) throws IOException {
+        if (config.threads <= 1) {
+            list(config, logger, sink, 1, Runnable::run);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(config.threads);
+            try {
+                list(config, logger, sink, config.threads, pool);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    public static void list(SeedSolverConfig config, Logger logger, int parallelism, Executor executor) {
+        try {
+            list(config, logger, null, parallelism, executor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void list(SeedSolverConfig config, Logger logger, ResultSink sink, int parallelism,
+            Executor executor) throws IOException {
+        CandidateSet found;
+        if (0 < config.maxErrors) {
+            List<ErrorTolerantSolver.Correction> corrections = ErrorTolerantSolver.search(config, parallelism,
+                    executor);
+            printCorrections(logger, corrections);
+            found = ErrorTolerantSolver.flatten(corrections);
+        } else {
+            found = search(config, parallelism, executor);
+        }
+        try (found) {
+            print(logger, found, config.motionFrames());
+            if (sink != null) {
+                write(sink, found, config.motionFrames());
+            }
+        }
+    }
+
+    /**
+     * configに応じた探索を行い，モーションが始まったフレームとゲーム開始時の状態の組を返す．
+     */
+    public static CandidateSet search(SeedSolverConfig config, int parallelism, Executor executor) {
+        if (0 < config.maxErrors) {
+            return ErrorTolerantSolver.flatten(ErrorTolerantSolver.search(config, parallelism, executor));
+        }
         if (config.s0.isPresent()) {
             if (config.s1.isPresent()) {
-                List<Integer> motionStartFrame = findMotionStartFrames(config.motions, config.s0.getAsLong(),
-                        config.s1.getAsLong(),
+                FrameWindowIndex index = FrameWindowIndex.find(config.s0.getAsLong(), config.s1.getAsLong(),
                         config.frame.startInclusive, config.frame.endExclusive);
-                List<long[]> gameStart = Stream
-                        .generate(() -> new long[] { config.s0.getAsLong(), config.s1.getAsLong() })
-                        .limit(motionStartFrame.size())
-                        .toList();
-                print(logger, gameStart, motionStartFrame, config.motions.length);
+                List<Long> motionStartFrame = index != null && 64 <= config.motions.length
+                        && config.observations.isLowBit()
+                                ? index.findMotionStartFrames(config.motions, config.frame.startInclusive,
+                                        config.frame.endExclusive)
+                                : findMotionStartFrames(config.motions, config.observations, config.s0.getAsLong(),
+                                        config.s1.getAsLong(), config.frame.startInclusive,
+                                        config.frame.endExclusive, parallelism, executor);
+                CandidateSet found = new CandidateSet();
+                for (long frame : motionStartFrame) {
+                    found.add(frame, config.s0.getAsLong(), config.s1.getAsLong());
+                }
+                return found;
             } else {
                 int designated = 0;
-                Entry<List<Integer>, List<long[]>> e = findSingleState(config.motions, designated,
-                        config.s0.getAsLong(), config.frame.startInclusive, config.frame.endExclusive);
-                List<Integer> motionStartFrame = e.getKey();
-                List<long[]> gameStart = e.getValue();
-                print(logger, gameStart, motionStartFrame, config.motions.length);
+                return findSingleState(config.motions, config.observations, designated, config.s0.getAsLong(),
+                        config.frame.startInclusive, config.frame.endExclusive, LongPairPredicate.all(), parallelism,
+                        executor);
             }
         } else {
             if (config.s1.isPresent()) {
                 int designated = 1;
-                Entry<List<Integer>, List<long[]>> e = findSingleState(config.motions, designated,
-                        config.s1.getAsLong(), config.frame.startInclusive, config.frame.endExclusive);
-                List<Integer> motionStartFrame = e.getKey();
-                List<long[]> gameStart = e.getValue();
-                print(logger, gameStart, motionStartFrame, config.motions.length);
+                return findSingleState(config.motions, config.observations, designated, config.s1.getAsLong(),
+                        config.frame.startInclusive, config.frame.endExclusive, LongPairPredicate.all(), parallelism,
+                        executor);
             } else {
-                List<long[]> motionStart = solve(config.motions);
-                List<Integer> motionStartFrame = Stream.<Integer>generate(() -> 0).limit(motionStart.size()).toList();
-                print(logger, motionStart, motionStartFrame, config.motions.length);
+                GrayCodeSpliterator candidates = candidates(config.motions, config.observations,
+                        SolveTableStore.getDefault());
+                if (candidates.dimension() > MAX_MATERIALIZED_RANK)
+                    throw new TooFewMotionsException("Too less motions. Being not less than 128 recommended.");
+                CandidateSet found = new CandidateSet();
+                try (SolverMetrics.Phase phase = SolverMetrics.phase("enumerate")) {
+                    candidates.forEachRemaining((s0, s1) -> found.add(0, s0, s1));
+                    phase.candidates(found.size());
+                }
+                return found;
             }
         }
     }
 
-    public static void print(Logger logger, List<long[]> gameStart, List<Integer> motionStartFrame,
-            int motionLength) {
-        List<long[]> motionStart = new ArrayList<>(gameStart.size());
-        for (int i = 0; i < gameStart.size(); i++) {
-            long[] g = gameStart.get(i);
-            Xoroshiro random = new Xoroshiro(g[0], g[1]);
-            for (int j = 0; j < motionStartFrame.get(i); j++) {
-                random.next();
+    /**
+     * 見つかった状態をすべてsinkに書き出す．
+     * モーション開始時の状態はゲーム開始時の状態から，モーション終了時の状態はモーション開始時の状態から飛ばして求める．
+     * 同じゲーム開始時の状態が続くときは，一つ前のモーション開始時の状態からの差分だけ進める．
+     */
+    public static void write(ResultSink sink, CandidateSet found, int motionLength) throws IOException {
+        write(sink, found, found.size(), motionLength);
+    }
+
+    /**
+     * 最初のcount件だけを書き出す．
+     */
+    private static void write(ResultSink sink, CandidateSet found, long count, int motionLength)
+            throws IOException {
+        try (SolverMetrics.Phase phase = SolverMetrics.phase("output")) {
+            PackedBinaryMatrix toEnd = XoroshiroTransition.matrix(motionLength);
+            long[] s = new long[2];
+            long[] e = new long[2];
+            boolean first = true;
+            long previous0 = 0, previous1 = 0, previousFrame = 0;
+            for (long i = 0; i < count; i++) {
+                long g0 = found.s0(i);
+                long g1 = found.s1(i);
+                long f = found.frame(i);
+                if (!first && previous0 == g0 && previous1 == g1 && previousFrame <= f) {
+                    advance(s, f - previousFrame);
+                } else {
+                    s[0] = g0;
+                    s[1] = g1;
+                    XoroshiroTransition.moveInPlace(s, f);
+                }
+                first = false;
+                previous0 = g0;
+                previous1 = g1;
+                previousFrame = f;
+                e[0] = s[0];
+                e[1] = s[1];
+                XoroshiroTransition.multiplyInPlace(toEnd, e);
+                sink.write(g0, g1, f, s[0], s[1], f + motionLength, e[0], e[1]);
             }
-            motionStart.add(random.s);
         }
-        List<long[]> motionEnd = new ArrayList<>(motionStart.size());
-        for (int i = 0; i < motionStart.size(); i++) {
-            long[] s = motionStart.get(i);
-            Xoroshiro random = new Xoroshiro(s[0], s[1]);
-            for (int j = 0; j < motionLength; j++) {
-                random.next();
+    }
+
+    /**
+     * 近ければ1フレームずつ，遠ければ飛ばして進める．
+     */
+    private static void advance(long[] s, long n) {
+        if (n < 128) {
+            long s0 = s[0];
+            long s1 = s[1];
+            for (long k = 0; k < n; k++) {
+                long t = Xoroshiro.nextS0(s0, s1);
+                s1 = Xoroshiro.nextS1(s0, s1);
+                s0 = t;
             }
-            motionEnd.add(random.s);
+            s[0] = s0;
+            s[1] = s1;
+        } else {
+            XoroshiroTransition.moveInPlace(s, n);
         }
-        logger.config(String.format("%d %s found.", gameStart.size(), gameStart.size() == 1 ? "was" : "were"));
-        if (gameStart.size() > 0)
+    }
+
+    /**
+     * 反転させたモーションの位置(0始まり)を最初のPRINT_LENGTH通りまでloggerに書く．
+     */
+    public static void printCorrections(Logger logger, List<ErrorTolerantSolver.Correction> corrections) {
+        for (int i = 0; i < corrections.size() && i < PRINT_LENGTH; i++) {
+            ErrorTolerantSolver.Correction c = corrections.get(i);
+            int dimension = c.gameStart.dimension();
+            logger.config("Flipped motions %s at frame %d: %d %s.".formatted(Arrays.toString(c.positions),
+                    c.motionStartFrame, 1L << dimension, dimension == 0 ? "state" : "states"));
+        }
+        if (PRINT_LENGTH < corrections.size()) {
+            logger.config("The remaining corrections are omitted.");
+        }
+    }
+
+    /**
+     * 件数と最初のPRINT_LENGTH件をloggerに書く．すべて書き出すには{@link #write}を使う．
+     */
+    public static void print(Logger logger, CandidateSet found, int motionLength) {
+        logger.config(String.format("%d %s found.", found.size(), found.size() == 1 ? "was" : "were"));
+        if (found.size() > 0)
             logger.config(
                     "{state game started in}, {frame motion started at}, {state motion started in}, "
                             + "{frame motion ended at}, {state motion ended at}");
-        int printLength = 30;
-        for (int i = 0; i < gameStart.size() && i < printLength; i++) {
-            long[] g = gameStart.get(i);
-            long[] s = motionStart.get(i);
-            long[] e = motionEnd.get(i);
-            int f = motionStartFrame.get(i);
-            List<String> entries = new ArrayList<>();
-            entries.add(String.format("(%016x, %016x)", g[0], g[1]));
-            entries.add(String.format("%d", f));
-            entries.add(String.format("(%016x, %016x)", s[0], s[1]));
-            entries.add(String.format("%d", f + motionLength));
-            entries.add(String.format("(%016x, %016x)", e[0], e[1]));
-            logger.info(String.join(", ", entries));
+        long printLength = Math.min(PRINT_LENGTH, found.size());
+        try (ResultSink sink = new LoggerResultSink(logger)) {
+            write(sink, found, printLength, motionLength);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        if (printLength < gameStart.size()) {
+        if (printLength < found.size()) {
             logger.config("The remaining candidates are omitted.");
         }
     }
@@ -0,0 +1,109 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import jp.co.pattirudon.xoroshiroseed.random.ObservationSpec;
+
+/**
+ * モーションの長さごとの{@link SolveTables}を保持する．
+ * メモリ上のキャッシュになければディレクトリ内のファイルを読み，それもなければ計算してファイルに保存する．
+ * ディレクトリを指定しなければメモリ上にだけ保持する．
+ * <p>
+ * 計算と読み書きは鍵ごとに一度だけ，キャッシュのロックの外で行うので，他の長さの問い合わせを待たせない．
+ */
+public class SolveTableStore {
+    private static volatile SolveTableStore defaultStore = new SolveTableStore(null);
+
+    private final Path directory;
+    private final Map<Integer, CompletableFuture<SolveTables>> cache = new ConcurrentHashMap<>();
+    private final Map<ObservationSpec, Map<Integer, CompletableFuture<SolveTables>>> observationCache =
+            new ConcurrentHashMap<>();
+
+    public SolveTableStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public static SolveTableStore getDefault() {
+        return defaultStore;
+    }
+
+    public static void setDefault(SolveTableStore store) {
+        defaultStore = store;
+    }
+
+    public Path path(int length) {
+        return directory.resolve("solve-%d.bin".formatted(length));
+    }
+
+    public SolveTables get(int length) {
+        return get(cache, length, this::load);
+    }
+
+    /**
+     * framesフレーム分をspecで観測したときの表．LOW_BIT以外はメモリ上にだけ保持する．
+     */
+    public SolveTables get(ObservationSpec spec, int frames) {
+        if (spec.isLowBit()) {
+            return get(frames);
+        }
+        return get(observationCache.computeIfAbsent(spec, key -> new ConcurrentHashMap<>()), frames,
+                n -> SolveTables.compute(spec.matrix(n)));
+    }
+
+    /**
+     * 同じ鍵を同時に問い合わせたときは，一方の計算が終わるのを待つ．失敗したらキャッシュに残さない．
+     */
+    private static <K> SolveTables get(Map<K, CompletableFuture<SolveTables>> map, K key,
+            Function<K, SolveTables> compute) {
+        CompletableFuture<SolveTables> created = new CompletableFuture<>();
+        CompletableFuture<SolveTables> future = map.computeIfAbsent(key, k -> created);
+        if (future == created) {
+            try {
+                created.complete(compute.apply(key));
+            } catch (RuntimeException | Error e) {
+                map.remove(key, created);
+                created.completeExceptionally(e);
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            } else if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private SolveTables load(int length) {
+        if (directory == null) {
+            return SolveTables.compute(length);
+        }
+        try {
+            Path path = path(length);
+            if (Files.isRegularFile(path)) {
+                try {
+                    return SolveTables.read(path);
+                } catch (IOException e) {
+                    /* 壊れたファイルは作り直す */
+                }
+            }
+            SolveTables tables = SolveTables.compute(length);
+            Files.createDirectories(directory);
+            tables.write(path);
+            return tables;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import jp.co.pattirudon.xoroshiroseed.matrices.PackedBinaryMatrix;
+import jp.co.pattirudon.xoroshiroseed.metrics.SolverMetrics;
+
+/**
+ * {@link SeedSolver#solve(byte[])}のうちモーションの長さだけで決まる部分．
+ * <ul>
+ * <li>matrix: 係数行列f．singleBitsMatrix(n)なら128 x n</li>
+ * <li>inverse: fの一般化逆行列．singleBitsMatrix(n)ならn x 128</li>
+ * <li>nullBasis: 解空間の向きを与える零空間の基底(各128ビット)</li>
+ * <li>parityCheck(): f・k = 0を満たすkの基底．誤り訂正でだけ使うので，初めて使うときに求める</li>
+ * </ul>
+ * ファイルにはinverseとnullBasisだけを書き，fは読むときにsingleBitsMatrix(n)として作り直す．
+ */
+public class SolveTables {
+    static final long MAGIC = 0x5853535400000002L;
+
+    public final int length;
+    public final PackedBinaryMatrix matrix;
+    public final PackedBinaryMatrix inverse;
+    public final long[][] nullBasis;
+    private volatile long[][] parityCheck;
+
+    SolveTables(PackedBinaryMatrix matrix, PackedBinaryMatrix inverse, long[][] nullBasis) {
+        this.length = matrix.columns;
+        this.matrix = matrix;
+        this.inverse = inverse;
+        this.nullBasis = nullBasis;
+    }
+
+    public static SolveTables compute(int length) {
+        return compute(SeedSolver.packedSingleBitsMatrix(length));
+    }
+
+    /**
+     * 行が未知数，列が観測に対応する行列fについて表を作る．f = singleBitsMatrix(n)でなくてもよい．
+     */
+    public static SolveTables compute(PackedBinaryMatrix f) {
+        int length = f.columns;
+        PackedBinaryMatrix g = f.generalizedInverse();
+        PackedBinaryMatrix h = f.multiplyRight(g).add(PackedBinaryMatrix.ones(f.rows));
+        long[][] nullBasis = h.rowBasis();
+        /* 一般化逆行列，零空間の基底の2回 */
+        SolverMetrics.current().addEliminations(2);
+        return new SolveTables(f, g, nullBasis);
+    }
+
+    /**
+     * パリティ検査行列の行．fの転置を掃き出して，初めて呼ばれたときに一度だけ求める．
+     */
+    public long[][] parityCheck() {
+        long[][] h = parityCheck;
+        if (h == null) {
+            synchronized (this) {
+                h = parityCheck;
+                if (h == null) {
+                    PackedBinaryMatrix.Enchelon e = matrix.transposed().enchelon();
+                    h = new long[length - e.rank][];
+                    for (int i = e.rank; i < length; i++) {
+                        h[i - e.rank] = e.p.mat[i];
+                    }
+                    SolverMetrics.current().addEliminations(1);
+                    parityCheck = h;
+                }
+            }
+        }
+        return h;
+    }
+
+    /**
+     * モーションyが解を持つか．解の一つx = y・Gについてx・f = yとなるかを確かめる．
+     */
+    public boolean isConsistent(long[] packedMotions) {
+        return Arrays.equals(matrix.multiplyLeft(particularSolution(packedMotions)), packedMotions);
+    }
+
+    /**
+     * 解の一つを返す．singleBitsMatrix(n)の表なら{s0, s1}の順．解を持つかどうかは確かめない．
+     */
+    public long[] particularSolution(long[] packedMotions) {
+        return inverse.multiplyLeft(packedMotions);
+    }
+
+    private static long fileLongs(int length, int nullRank) {
+        return 3L + 2L * length + 2L * nullRank;
+    }
+
+    /**
+     * singleBitsMatrix(n)の表だけを書く．
+     */
+    public void write(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(8 * fileLongs(length, nullBasis.length)))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        LongBuffer longs = buffer.asLongBuffer();
+        longs.put(MAGIC).put(length).put(nullBasis.length);
+        for (long[] row : inverse.mat) {
+            longs.put(row, 0, 2);
+        }
+        for (long[] row : nullBasis) {
+            longs.put(row, 0, 2);
+        }
+        Path tmp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, buffer.array());
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public static SolveTables read(Path path) throws IOException {
+        LongBuffer longs = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        if (longs.remaining() < 4 || longs.get() != MAGIC) {
+            throw new IOException("Not a solve table file: " + path);
+        }
+        int length = Math.toIntExact(longs.get());
+        int nullRank = Math.toIntExact(longs.get());
+        if (longs.capacity() != fileLongs(length, nullRank)) {
+            throw new IOException("Broken solve table file: " + path);
+        }
+        long[][] inverse = new long[length][2];
+        for (long[] row : inverse) {
+            longs.get(row);
+        }
+        long[][] nullBasis = new long[nullRank][2];
+        for (long[] row : nullBasis) {
+            longs.get(row);
+        }
+        return new SolveTables(SeedSolver.packedSingleBitsMatrix(length),
+                PackedBinaryMatrix.getInstance(length, 128, inverse, false), nullBasis);
+    }
+}
@@ -0,0 +1,140 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import jp.co.pattirudon.xoroshiroseed.random.Xoroshiro;
+
+/**
+ * ループバックアドレスで待ち受けるHTTPサーバー．
+ * <ul>
+ * <li>POST /solve: 本文に{@link jp.co.pattirudon.xoroshiroseed.config.SeedSolverConfig}と同じJSONを受け取り，
+ * バッチモードの1行と同じ形のJSONを返す．
+ * クエリに"metrics"があれば計測値も含める．入力の誤りには400を，内部の誤りには500を返す．</li>
+ * <li>GET /health: "ok"を返す．</li>
+ * </ul>
+ * 同時に解くのはconcurrency個までで，それを超えた分はqueue個まで待たせ，さらに超えた分には503を返す．
+ * JVMを起動したままにするので，事前計算した表とJITの結果はリクエストをまたいで使われる．
+ */
+public class SolverServer implements AutoCloseable {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonSolver solver = new JsonSolver(mapper);
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore admission;
+    private final Semaphore running;
+
+    public SolverServer(int port, int concurrency, int queue) throws IOException {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be positive.");
+        } else if (queue < 0) {
+            throw new IllegalArgumentException("Queue must not be negative.");
+        }
+        this.admission = new Semaphore(concurrency + queue);
+        this.running = new Semaphore(concurrency);
+        this.executor = Executors.newFixedThreadPool(concurrency + queue);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+        server.createContext("/solve", this::handleSolve);
+        server.createContext("/health", exchange -> respond(exchange, 200, "ok\n"));
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * 適当なモーションで一通りの探索を行い，表の計算とJITによるコンパイルを済ませておく．
+     */
+    public void warmUp() {
+        Random random = new Random(0);
+        long s0 = random.nextLong();
+        long s1 = random.nextLong();
+        for (int length : new int[] { 128, 140 }) {
+            SeedSolver.solve(SeedSolver.singleBits(s0, s1, length));
+        }
+        byte[] motions = SeedSolver.singleBits(s0, s1, 77);
+        SeedSolver.findMotionStartFrames(motions, s0, s1, 0, 1 << 14);
+        SeedSolver.findSingleState(motions, 1, s1, 0, 1 << 12);
+        new Xoroshiro(s0, s1).jump(Long.MAX_VALUE);
+    }
+
+    private void handleSolve(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "{\"error\":\"Use POST.\"}\n");
+            return;
+        }
+        if (!admission.tryAcquire()) {
+            respond(exchange, 503, "{\"error\":\"Too many requests.\"}\n");
+            return;
+        }
+        try {
+            byte[] body;
+            try (InputStream is = exchange.getRequestBody()) {
+                body = is.readAllBytes();
+            }
+            String query = exchange.getRequestURI().getQuery();
+            boolean metrics = query != null && Arrays.asList(query.split("&")).contains("metrics");
+            running.acquireUninterruptibly();
+            ObjectNode result;
+            try {
+                result = solver.solve("", () -> mapper.readTree(body), metrics);
+            } finally {
+                running.release();
+            }
+            respond(exchange, status(result), mapper.writeValueAsString(result) + "\n");
+        } finally {
+            admission.release();
+        }
+    }
+
+    /**
+     * 成功なら200，入力の誤りなら400，それ以外の失敗なら500．
+     */
+    private static int status(ObjectNode result) {
+        if (!result.has("error")) {
+            return 200;
+        }
+        return JsonSolver.INPUT_ERROR.equals(result.path("errorType").asText()) ? 400 : 500;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type",
+                body.startsWith("{") ? "application/json" : "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import java.time.Duration;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import jp.co.pattirudon.xoroshiroseed.config.SeedSolverConfig;
+import jp.co.pattirudon.xoroshiroseed.matrices.LongPairPredicate;
+import jp.co.pattirudon.xoroshiroseed.metrics.SolverMetrics;
+import jp.co.pattirudon.xoroshiroseed.random.ObservationSpec;
+
+/**
+ * フレームの範囲の探索を非同期に行う．
+ * <p>
+ * 範囲をCHUNK_FRAMESフレーム以下の区間に分け，parallelism個のワーカーが先頭から順に区間を取って探索する．
+ * 区間は取るときに決めるので，範囲がどれだけ広くても前もって確保するものはない．
+ * 終えた区間の結果は，手前の区間がすべて終わった時点でつないで閉じる．
+ * 取り消し，期限切れ，例外は区間の切れ目で確かめ，それ以降の区間は探索しない．
+ * 進捗は区間を終えたワーカーが，前回からintervalMillis以上経っていれば知らせる．
+ * <pre>
+ * SolverTask task = SolverTask.findSingleState(motions, 1, s1, 0, 10_000_000, 4, pool)
+ *         .onProgress(p -&gt; System.err.println(p), 1000).timeout(Duration.ofMinutes(1)).start();
+ * CandidateSet found = task.future().join();
+ * </pre>
+ */
+public class SolverTask {
+    public static final long CHUNK_FRAMES = 1L << 16;
+
+    /**
+     * ある時点での進み具合．
+     */
+    public static class Progress {
+        public final long framesDone;
+        public final long totalFrames;
+        public final long candidates;
+        public final Duration elapsed;
+
+        Progress(long framesDone, long totalFrames, long candidates, Duration elapsed) {
+            this.framesDone = framesDone;
+            this.totalFrames = totalFrames;
+            this.candidates = candidates;
+            this.elapsed = elapsed;
+        }
+
+        public double framesPerSecond() {
+            long nanos = elapsed.toNanos();
+            return nanos == 0 ? 0 : framesDone * 1e9 / nanos;
+        }
+
+        /**
+         * 今の速さのまま残りを探索したときにかかる時間．まだ1フレームも終えていなければnull．
+         */
+        public Duration eta() {
+            if (framesDone == 0) {
+                return null;
+            }
+            return Duration.ofNanos((long) ((double) elapsed.toNanos() * (totalFrames - framesDone) / framesDone));
+        }
+
+        @Override
+        public String toString() {
+            Duration eta = eta();
+            return "%d/%d frames, %.0f frames/s, %d candidates, ETA %s".formatted(framesDone, totalFrames,
+                    framesPerSecond(), candidates, eta == null ? "unknown" : eta.toSeconds() + "s");
+        }
+    }
+
+    private final FrameRangeSearch.RangeSearch<CandidateSet> search;
+    private final long startInclusive;
+    private final long endExclusive;
+    private final long chunkFrames;
+    private final long chunkCount;
+    private final long totalFrames;
+    private final int parallelism;
+    private final Executor executor;
+    private final CompletableFuture<CandidateSet> future = new CompletableFuture<>();
+
+    /* 先頭から隙間なく終えた区間をつないだ結果と，その後ろで先に終えた区間．どちらもthisで守る */
+    private final CandidateSet merged = new CandidateSet();
+    private long mergedChunks = 0;
+    private final TreeMap<Long, CandidateSet> pending = new TreeMap<>();
+
+    private final AtomicLong nextChunk = new AtomicLong();
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+    private final AtomicLong framesDone = new AtomicLong();
+    private final AtomicLong candidates = new AtomicLong();
+    private final AtomicLong lastReport = new AtomicLong();
+    private Consumer<Progress> listener;
+    private long intervalNanos;
+    private Duration timeout;
+    private volatile long startNanos;
+    private volatile boolean started = false;
+
+    SolverTask(long startInclusive, long endExclusive, int parallelism, Executor executor,
+            FrameRangeSearch.RangeSearch<CandidateSet> search) {
+        this.search = search;
+        this.startInclusive = startInclusive;
+        this.endExclusive = Math.max(startInclusive, endExclusive);
+        this.totalFrames = this.endExclusive - startInclusive;
+        this.parallelism = Math.max(1, parallelism);
+        long chunks = (long) this.parallelism * FrameRangeSearch.CHUNKS_PER_THREAD;
+        this.chunkFrames = Math.max(FrameRangeSearch.MIN_CHUNK_FRAMES,
+                Math.min(CHUNK_FRAMES, totalFrames / chunks + (totalFrames % chunks == 0 ? 0 : 1)));
+        this.chunkCount = Math.max(1, totalFrames / chunkFrames + (totalFrames % chunkFrames == 0 ? 0 : 1));
+        this.executor = executor;
+        future.whenComplete((result, e) -> {
+            if (future.isCancelled()) {
+                release();
+            }
+        });
+    }
+
+    public static SolverTask findSingleState(byte[] motions, int designated, long s, long frameStartInclusive,
+            long frameEndExclusive, int parallelism, Executor executor) {
+        return findSingleState(motions, designated, s, frameStartInclusive, frameEndExclusive,
+                LongPairPredicate.all(), parallelism, executor);
+    }
+
+    public static SolverTask findSingleState(byte[] motions, int designated, long s, long frameStartInclusive,
+            long frameEndExclusive, LongPairPredicate filter, int parallelism, Executor executor) {
+        return findSingleState(motions, ObservationSpec.LOW_BIT, designated, s, frameStartInclusive,
+                frameEndExclusive, filter, parallelism, executor);
+    }
+
+    public static SolverTask findSingleState(byte[] motions, ObservationSpec spec, int designated, long s,
+            long frameStartInclusive, long frameEndExclusive, LongPairPredicate filter, int parallelism,
+            Executor executor) {
+        return new SolverTask(frameStartInclusive, frameEndExclusive, parallelism, executor,
+                (start, end) -> SeedSolver.findSingleState(motions, spec, designated, s, start, end, filter));
+    }
+
+    public static SolverTask findMotionStartFrames(byte[] motions, long s0, long s1, long frameStartInclusive,
+            long frameEndExclusive, int parallelism, Executor executor) {
+        return findMotionStartFrames(motions, ObservationSpec.LOW_BIT, s0, s1, frameStartInclusive,
+                frameEndExclusive, parallelism, executor);
+    }
+
+    public static SolverTask findMotionStartFrames(byte[] motions, ObservationSpec spec, long s0, long s1,
+            long frameStartInclusive, long frameEndExclusive, int parallelism, Executor executor) {
+        return new SolverTask(frameStartInclusive, frameEndExclusive, parallelism, executor, (start, end) -> {
+            CandidateSet found = new CandidateSet();
+            for (long frame : SeedSolver.findMotionStartFrames(motions, spec, s0, s1, start, end)) {
+                found.add(frame, s0, s1);
+            }
+            return found;
+        });
+    }
+
+    /**
+     * configに応じた探索．フレームを探索しない場合と，読み間違いを許してs0とs1の両方は与えられていない場合は，
+     * 全体を一つの区間として扱う．
+     */
+    public static SolverTask search(SeedSolverConfig config, Executor executor) {
+        if (0 < config.maxErrors && config.s0.isPresent() && config.s1.isPresent()) {
+            long s0 = config.s0.getAsLong(), s1 = config.s1.getAsLong();
+            return new SolverTask(config.frame.startInclusive, config.frame.endExclusive, config.threads, executor,
+                    (start, end) -> ErrorTolerantSolver.flatten(ErrorTolerantSolver.findMotionStartFrames(
+                            config.motions, s0, s1, start, end, config.maxErrors)));
+        } else if (config.maxErrors == 0 && config.s0.isPresent() && config.s1.isPresent()) {
+            return findMotionStartFrames(config.motions, config.observations, config.s0.getAsLong(),
+                    config.s1.getAsLong(), config.frame.startInclusive, config.frame.endExclusive, config.threads,
+                    executor);
+        } else if (config.maxErrors == 0 && (config.s0.isPresent() || config.s1.isPresent())) {
+            int designated = config.s0.isPresent() ? 0 : 1;
+            long s = config.s0.isPresent() ? config.s0.getAsLong() : config.s1.getAsLong();
+            return findSingleState(config.motions, config.observations, designated, s,
+                    config.frame.startInclusive, config.frame.endExclusive, LongPairPredicate.all(), config.threads,
+                    executor);
+        } else {
+            return new SolverTask(0, 0, 1, executor, (start, end) -> SeedSolver.search(config, 1, Runnable::run));
+        }
+    }
+
+    /**
+     * 進捗をintervalMillisごとにlistenerに知らせる．終わったときにも一度知らせる．
+     */
+    public SolverTask onProgress(Consumer<Progress> listener, long intervalMillis) {
+        checkNotStarted();
+        this.listener = listener;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        return this;
+    }
+
+    /**
+     * 開始からtimeoutが経ったら，{@link #future()}をTimeoutExceptionで終わらせ，残りの区間を探索しない．
+     * それまでの結果は{@link #partialResult()}で得られる．
+     */
+    public SolverTask timeout(Duration timeout) {
+        checkNotStarted();
+        this.timeout = timeout;
+        return this;
+    }
+
+    private void checkNotStarted() {
+        if (started) {
+            throw new IllegalStateException("The task has already started.");
+        }
+    }
+
+    public synchronized SolverTask start() {
+        checkNotStarted();
+        started = true;
+        startNanos = System.nanoTime();
+        lastReport.set(startNanos);
+        if (timeout != null) {
+            future.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        int workers = (int) Math.min(parallelism, chunkCount);
+        runningWorkers.set(workers);
+        SolverMetrics metrics = SolverMetrics.current();
+        for (int w = 0; w < workers; w++) {
+            try {
+                executor.execute(() -> {
+                    try (SolverMetrics.Scope scope = metrics.attach()) {
+                        work();
+                    }
+                });
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                if (runningWorkers.addAndGet(w - workers) == 0) {
+                    finish();
+                }
+                break;
+            }
+        }
+        return this;
+    }
+
+    private void work() {
+        try {
+            for (long i; !future.isDone() && (i = nextChunk.getAndIncrement()) < chunkCount;) {
+                long chunkStart = startInclusive + i * chunkFrames;
+                long chunkEnd = i == chunkCount - 1 ? endExclusive : chunkStart + chunkFrames;
+                CandidateSet found = search.search(chunkStart, chunkEnd);
+                long size = found.size();
+                merge(i, found);
+                framesDone.addAndGet(chunkEnd - chunkStart);
+                candidates.addAndGet(size);
+                long now = System.nanoTime();
+                long last = lastReport.get();
+                if (listener != null && intervalNanos <= now - last && lastReport.compareAndSet(last, now)) {
+                    listener.accept(progress());
+                }
+            }
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        } finally {
+            if (runningWorkers.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+    }
+
+    /**
+     * 第i区間の結果を加え，先頭から隙間なく並んだ分をmergedにつないで閉じる．取り消した後なら捨てる．
+     */
+    private synchronized void merge(long i, CandidateSet found) {
+        if (future.isCancelled()) {
+            found.close();
+            return;
+        }
+        pending.put(i, found);
+        while (pending.containsKey(mergedChunks)) {
+            try (CandidateSet next = pending.remove(mergedChunks)) {
+                merged.addAll(next);
+            }
+            mergedChunks++;
+        }
+    }
+
+    /**
+     * 最後のワーカーが抜けるときに呼ぶ．途中で止まったときは，終えていない区間を飛ばして残りもつなぐ．
+     */
+    private void finish() {
+        if (listener != null) {
+            listener.accept(progress());
+        }
+        synchronized (this) {
+            if (!future.isCancelled()) {
+                for (CandidateSet next : pending.values()) {
+                    try (next) {
+                        merged.addAll(next);
+                    }
+                }
+                pending.clear();
+            }
+            future.complete(merged);
+        }
+    }
+
+    /**
+     * 取り消されたときに，持っている結果をすべて閉じる．
+     */
+    private synchronized void release() {
+        for (CandidateSet chunk : pending.values()) {
+            chunk.close();
+        }
+        pending.clear();
+        merged.close();
+    }
+
+    /**
+     * 結果．取り消すとこのタスクも止まり，それまでの結果も捨てる．
+     */
+    public CompletableFuture<CandidateSet> future() {
+        return future;
+    }
+
+    /**
+     * 残りの区間を探索せずに止め，それまでの結果を捨てる．
+     */
+    public boolean cancel() {
+        return future.cancel(false);
+    }
+
+    public boolean isCancelled() {
+        return future.isCancelled();
+    }
+
+    public Progress progress() {
+        long elapsed = started ? System.nanoTime() - startNanos : 0;
+        return new Progress(framesDone.get(), totalFrames, candidates.get(), Duration.ofNanos(elapsed));
+    }
+
+    /**
+     * 探索を終えた区間の結果をフレーム順に並べたものの複製．途中で止まったときは，終えていない区間の分が抜けている．
+     * 取り消した後は空．
+     */
+    public synchronized CandidateSet partialResult() {
+        CandidateSet result = new CandidateSet();
+        if (!future.isCancelled()) {
+            result.addAll(merged);
+            for (CandidateSet chunk : pending.values()) {
+                result.addAll(chunk);
+            }
+        }
+        return result;
+    }
+}
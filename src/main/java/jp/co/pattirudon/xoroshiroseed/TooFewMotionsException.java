@@ -0,0 +1,15 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+/**
+ * モーションが少なすぎて解を列挙しきれないときに投げる．原因は入力にある．
+ */
+public class TooFewMotionsException extends IllegalStateException {
+
+    public TooFewMotionsException() {
+    }
+
+    public TooFewMotionsException(String message) {
+        super(message);
+    }
+
+}
@@ -4,11 +4,11 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class FrameConfig {
-    public int startInclusive, endExclusive;
+    public long startInclusive, endExclusive;
 
     @JsonCreator
-    public FrameConfig(@JsonProperty(value = "startInclusive", required = true) int startInclusive,
-            @JsonProperty(value = "endExclusive", required = true) int endExclusive) {
+    public FrameConfig(@JsonProperty(value = "startInclusive", required = true) long startInclusive,
+            @JsonProperty(value = "endExclusive", required = true) long endExclusive) {
         this.startInclusive = startInclusive;
         this.endExclusive = endExclusive;
     }
@@ -0,0 +1,18 @@
+package jp.co.pattirudon.xoroshiroseed.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * 1フレームの観測の一つ．(s0 &amp; s0マスク) ^ (s1 &amp; s1マスク)の各ビットの和．マスクは16進数．
+ */
+public class ObservationConfig {
+    public long s0, s1;
+
+    @JsonCreator
+    public ObservationConfig(@JsonProperty(value = "s0", required = true) String s0,
+            @JsonProperty(value = "s1", required = true) String s1) {
+        this.s0 = Long.parseUnsignedLong(s0, 16);
+        this.s1 = Long.parseUnsignedLong(s1, 16);
+    }
+}
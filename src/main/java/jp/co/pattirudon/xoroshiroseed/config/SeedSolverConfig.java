@@ -1,13 +1,19 @@
 package jp.co.pattirudon.xoroshiroseed.config;
 
+import java.util.List;
 import java.util.OptionalLong;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import jp.co.pattirudon.xoroshiroseed.random.ObservationSpec;
+
 public class SeedSolverConfig {
     public byte[] motions;
     public OptionalLong s0, s1;
     public FrameConfig frame;
+    public int threads;
+    public int maxErrors;
+    public ObservationSpec observations;
 
     protected void setMotions(String s) {
         if (s == null) {
@@ -36,6 +42,62 @@ public class SeedSolverConfig {
         this.s1 = toUnsignedOptionalLong(s1);
     }
 
+    public void setThreads(Integer threads) {
+        if (threads == null) {
+            this.threads = 1;
+        } else if (threads < 1) {
+            throw new IllegalArgumentException("Threads must be positive.");
+        } else {
+            this.threads = threads;
+        }
+    }
+
+    public void setMaxErrors(Integer maxErrors) {
+        if (maxErrors == null) {
+            this.maxErrors = 0;
+        } else if (maxErrors < 0) {
+            throw new IllegalArgumentException("Max errors must not be negative.");
+        } else {
+            this.maxErrors = maxErrors;
+        }
+    }
+
+    public void setObservations(List<ObservationConfig> observations) {
+        if (observations == null) {
+            this.observations = ObservationSpec.LOW_BIT;
+        } else {
+            long[] mask0 = new long[observations.size()];
+            long[] mask1 = new long[observations.size()];
+            for (int j = 0; j < mask0.length; j++) {
+                mask0[j] = observations.get(j).s0;
+                mask1[j] = observations.get(j).s1;
+            }
+            this.observations = new ObservationSpec(mask0, mask1);
+        }
+    }
+
+    /**
+     * モーションが何フレーム分か．
+     */
+    public int motionFrames() {
+        return observations.frames(motions.length);
+    }
+
+    /**
+     * 項目どうしが矛盾していないか確かめる．
+     */
+    public void validate() {
+        if (motions.length % observations.size() != 0) {
+            throw new IllegalArgumentException(
+                    "The number of motions (%d) must be a multiple of the number of observations per frame (%d)."
+                            .formatted(motions.length, observations.size()));
+        } else if ((s0.isPresent() || s1.isPresent()) && frame == null) {
+            throw new IllegalArgumentException("\"frame\" is required when s0 or s1 is given.");
+        } else if (maxErrors > 0 && !observations.isLowBit()) {
+            throw new IllegalArgumentException("Max errors supports only the low bit observation.");
+        }
+    }
+
     public static OptionalLong toUnsignedOptionalLong(String s) {
         if (s == null) {
             return OptionalLong.empty();
@@ -46,10 +108,16 @@ public class SeedSolverConfig {
 
     public SeedSolverConfig(@JsonProperty(value = "motions", required = true) String s,
             @JsonProperty(value = "s0") String s0, @JsonProperty(value = "s1") String s1,
-            @JsonProperty(value = "frame") FrameConfig frame) {
+            @JsonProperty(value = "frame") FrameConfig frame, @JsonProperty(value = "threads") Integer threads,
+            @JsonProperty(value = "maxErrors") Integer maxErrors,
+            @JsonProperty(value = "observations") List<ObservationConfig> observations) {
         setMotions(s);
         setS0(s0);
         setS1(s1);
         this.frame = frame;
+        setThreads(threads);
+        setMaxErrors(maxErrors);
+        setObservations(observations);
+        validate();
     }
 }
@@ -1,6 +1,5 @@
 package jp.co.pattirudon.xoroshiroseed.matrices;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -40,14 +39,24 @@ public class BinaryMatrix {
         return o;
     }
 
-    public BinaryMatrix transposed() {
-        byte[][] t = new byte[columns][rows];
-        for (int i = 0; i < columns; i++) {
-            for (int j = 0; j < rows; j++) {
-                t[i][j] = mat[j][i];
-            }
+    public static BinaryMatrix getInstance(PackedBinaryMatrix packedMatrix) {
+        byte[][] mat = new byte[packedMatrix.rows][];
+        for (int i = 0; i < packedMatrix.rows; i++) {
+            mat[i] = PackedBinaryMatrix.unpack(packedMatrix.mat[i], packedMatrix.columns);
+        }
+        return new BinaryMatrix(packedMatrix.rows, packedMatrix.columns, mat);
+    }
+
+    public PackedBinaryMatrix toPacked() {
+        long[][] packed = new long[rows][];
+        for (int i = 0; i < rows; i++) {
+            packed[i] = PackedBinaryMatrix.pack(Arrays.copyOf(mat[i], columns));
         }
-        return new BinaryMatrix(columns, rows, t);
+        return PackedBinaryMatrix.getInstance(rows, columns, packed, false);
+    }
+
+    public BinaryMatrix transposed() {
+        return getInstance(toPacked().transposed());
     }
 
     public void swapRows(int i, int j) {
@@ -79,13 +88,7 @@ public class BinaryMatrix {
             throw new IllegalColumnCountException(
                     "The length of the column vector must equal to the number of the columns of this matrix");
         }
-        byte[] result = new byte[rows];
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                result[i] ^= mat[i][j] & column[j];
-            }
-        }
-        return result;
+        return PackedBinaryMatrix.unpack(toPacked().multiplyRight(PackedBinaryMatrix.pack(column)), rows);
     }
 
     public byte[] multiplyLeft(byte[] row) {
@@ -93,13 +96,7 @@ public class BinaryMatrix {
             throw new IllegalRowCountException(
                     "The length of the row vector must equal to the number of the rows of this matrix");
         }
-        byte[] result = new byte[columns];
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                result[j] ^= row[i] & mat[i][j];
-            }
-        }
-        return result;
+        return PackedBinaryMatrix.unpack(toPacked().multiplyLeft(PackedBinaryMatrix.pack(row)), columns);
     }
 
     public BinaryMatrix multiplyRight(BinaryMatrix another) {
@@ -107,11 +104,7 @@ public class BinaryMatrix {
             throw new IllegalColumnCountException(
                     "The number of the rows of another matrix must equal to the number of the columns of this matrix");
         }
-        byte[][] _mat = new byte[this.rows][];
-        for (int i = 0; i < this.rows; i++) {
-            _mat[i] = another.multiplyLeft(this.mat[i]);
-        }
-        return new BinaryMatrix(this.rows, another.columns, _mat);
+        return getInstance(this.toPacked().multiplyRight(another.toPacked()));
     }
 
     public BinaryMatrix add(BinaryMatrix another) {
@@ -122,62 +115,24 @@ public class BinaryMatrix {
             throw new IllegalColumnCountException(
                     "The two matrices must have same number of columns.");
         }
-        byte[][] _mat = new byte[this.rows][this.columns];
-        for (int i = 0; i < this.rows; i++) {
-            for (int j = 0; j < this.columns; j++) {
-                _mat[i][j] = (byte) (this.mat[i][j] ^ another.mat[i][j]);
-            }
-        }
-        return new BinaryMatrix(this.rows, this.columns, _mat);
+        return getInstance(this.toPacked().add(another.toPacked()));
     }
 
     /**
-     * 階段行列を返す．thisに変更は加えない．
-     * @return 
+     * {@link PackedBinaryMatrix#enchelon()}と同じもの．
      */
     public Enchelon enchelon() {
-        BinaryMatrix f = BinaryMatrix.getInstance(this, true);
-        BinaryMatrix p = BinaryMatrix.ones(rows);
-        int rank = 0;
-        List<Integer> pivotsList = new ArrayList<>();
-        for (int j = 0; j < f.columns; j++) {
-            for (int i = rank; i < f.rows; i++) {
-                if (f.mat[i][j] != 0) {
-                    /* erase other rows */
-                    for (int k = 0; k < f.rows; k++) {
-                        if ((k != i) && (f.mat[k][j] != 0)) {
-                            f.addRows(i, k);
-                            p.addRows(i, k);
-                        }
-                    }
-                    f.swapRows(i, rank);
-                    p.swapRows(i, rank);
-                    pivotsList.add(j);
-                    rank++;
-                    break;
-                }
-            }
-        }
-        return new Enchelon(f, p, rank, pivotsList);
+        PackedBinaryMatrix.Enchelon e = toPacked().enchelon();
+        return new Enchelon(getInstance(e.f), getInstance(e.p), e.rank, e.pivots);
     }
 
     public BinaryMatrix generalizedInverse() {
-        Enchelon e = enchelon();
-        BinaryMatrix p = e.p;
-        int rank = e.rank;
-        List<Integer> pivots = e.pivots;
-        BinaryMatrix permp = p.resized(this.columns);
-        for (int i = rank - 1; i >= 0; i--) {
-            int columnIndex = pivots.get(i);
-            permp.swapRows(i, columnIndex);
-        }
-        return permp;
+        return getInstance(toPacked().generalizedInverse());
     }
 
     public byte[][] rowBasis() {
-        Enchelon e = enchelon();
-        BinaryMatrix f = e.f;
-        return Arrays.copyOf(f.mat, e.rank);
+        PackedBinaryMatrix.Enchelon e = toPacked().enchelon();
+        return Arrays.copyOf(getInstance(e.f).mat, e.rank);
     }
 
     public static class Enchelon {
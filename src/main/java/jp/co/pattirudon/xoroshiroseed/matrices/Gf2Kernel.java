@@ -0,0 +1,71 @@
+package jp.co.pattirudon.xoroshiroseed.matrices;
+
+/**
+ * {@link PackedBinaryMatrix}が使う，詰めた行どうしの演算．
+ * 既定ではjdk.incubator.vectorモジュールが読み込まれていれば({@code --add-modules jdk.incubator.vector})
+ * Vector APIを使う実装を，そうでなければスカラーの実装を使う．
+ * システムプロパティ{@value #PROPERTY}に"scalar"か"vector"を指定すると実装を固定できる．
+ * どちらの実装も同じ結果を返す．
+ */
+public abstract class Gf2Kernel {
+    public static final String PROPERTY = "xoroshiroseed.kernel";
+    public static final String SCALAR = "scalar";
+    public static final String VECTOR = "vector";
+
+    private static volatile Gf2Kernel current = select(System.getProperty(PROPERTY));
+
+    /**
+     * dst[0, words) ^= src[0, words)
+     */
+    public abstract void xor(long[] dst, long[] src, int words);
+
+    /**
+     * a[0, words)とb[0, words)の内積(0か1)．
+     */
+    public abstract int dot(long[] a, long[] b, int words);
+
+    public abstract String name();
+
+    public static Gf2Kernel current() {
+        return current;
+    }
+
+    /**
+     * 実装を切り替える．nameがnullなら使えるうちで速いものを選ぶ．
+     * @throws IllegalArgumentException nameが"scalar"でも"vector"でもないか，Vector APIが使えないときに"vector"を指定したとき
+     */
+    public static Gf2Kernel use(String name) {
+        Gf2Kernel kernel = select(name);
+        current = kernel;
+        return kernel;
+    }
+
+    public static boolean isVectorAvailable() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    private static Gf2Kernel select(String name) {
+        if (name == null || name.isEmpty()) {
+            return isVectorAvailable() ? vector() : ScalarGf2Kernel.INSTANCE;
+        } else if (SCALAR.equals(name)) {
+            return ScalarGf2Kernel.INSTANCE;
+        } else if (VECTOR.equals(name)) {
+            if (!isVectorAvailable()) {
+                throw new IllegalArgumentException("Module jdk.incubator.vector is not available.");
+            }
+            return vector();
+        } else {
+            throw new IllegalArgumentException("Unknown kernel: " + name);
+        }
+    }
+
+    private static Gf2Kernel vector() {
+        /* モジュールがないときにVector APIのクラスを読み込まないよう，名前で読み込む */
+        try {
+            return (Gf2Kernel) Class.forName(Gf2Kernel.class.getPackageName() + ".VectorGf2Kernel")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return ScalarGf2Kernel.INSTANCE;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package jp.co.pattirudon.xoroshiroseed.matrices;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * GF(2)^128のアフィン部分空間 base + span(basis) の元をグレイコード順に列挙する．
+ * i番目の元は base にグレイコード i ^ (i >>> 1) の立っているビットに対応する基底を足したもので，
+ * 隣り合う元の差は基底一つなので，一つ進めるごとのコストはXOR一回で済む．
+ * 分割したときは分割位置の元を直接求める．
+ */
+public class GrayCodeSpliterator implements Spliterator<long[]> {
+    public static final int MAX_DIMENSION = 62;
+    public static final long MIN_SPLIT_SIZE = 1L << 14;
+
+    private final long base0, base1;
+    private final long[] basis0, basis1;
+    private long index;
+    private final long fence;
+    private long current0, current1;
+
+    /**
+     * @param base 128ビットのベクトル(2語)
+     * @param basis 一次独立な128ビットのベクトルの列
+     */
+    public GrayCodeSpliterator(long[] base, long[][] basis) {
+        if (MAX_DIMENSION < basis.length) {
+            throw new IllegalArgumentException("The dimension must not be greater than %d.".formatted(MAX_DIMENSION));
+        }
+        this.base0 = base[0];
+        this.base1 = base[1];
+        this.basis0 = new long[basis.length];
+        this.basis1 = new long[basis.length];
+        for (int j = 0; j < basis.length; j++) {
+            basis0[j] = basis[j][0];
+            basis1[j] = basis[j][1];
+        }
+        this.index = 0;
+        this.fence = 1L << basis.length;
+        this.current0 = base0;
+        this.current1 = base1;
+    }
+
+    private GrayCodeSpliterator(GrayCodeSpliterator parent, long index, long fence) {
+        this.base0 = parent.base0;
+        this.base1 = parent.base1;
+        this.basis0 = parent.basis0;
+        this.basis1 = parent.basis1;
+        this.index = index;
+        this.fence = fence;
+        seek(index);
+    }
+
+    public static GrayCodeSpliterator empty() {
+        GrayCodeSpliterator e = new GrayCodeSpliterator(new long[2], new long[0][]);
+        e.index = e.fence;
+        return e;
+    }
+
+    public int dimension() {
+        return basis0.length;
+    }
+
+    private void seek(long i) {
+        long g = i ^ (i >>> 1);
+        long c0 = base0;
+        long c1 = base1;
+        while (g != 0) {
+            int j = Long.numberOfTrailingZeros(g);
+            g &= g - 1;
+            c0 ^= basis0[j];
+            c1 ^= basis1[j];
+        }
+        current0 = c0;
+        current1 = c1;
+    }
+
+    /**
+     * 配列を作らずに次の元を渡す．
+     */
+    public boolean tryAdvance(LongPairConsumer action) {
+        if (fence <= index) {
+            return false;
+        }
+        action.accept(current0, current1);
+        index++;
+        if (index < fence) {
+            int j = Long.numberOfTrailingZeros(index);
+            current0 ^= basis0[j];
+            current1 ^= basis1[j];
+        }
+        return true;
+    }
+
+    /**
+     * 配列を作らずに残りの元をすべて渡す．
+     */
+    public void forEachRemaining(LongPairConsumer action) {
+        long i = index;
+        long c0 = current0;
+        long c1 = current1;
+        while (i < fence) {
+            action.accept(c0, c1);
+            i++;
+            if (i < fence) {
+                int j = Long.numberOfTrailingZeros(i);
+                c0 ^= basis0[j];
+                c1 ^= basis1[j];
+            }
+        }
+        index = i;
+        current0 = c0;
+        current1 = c1;
+    }
+
+    /**
+     * 残りの元のうちpredicateを満たすものだけを，{lo0, hi0, lo1, hi1, ...}の形でグレイコード順に返す．
+     */
+    public long[] filterRemaining(LongPairPredicate predicate) {
+        long[] survivors = new long[16];
+        int size = 0;
+        long i = index;
+        long c0 = current0;
+        long c1 = current1;
+        while (i < fence) {
+            if (predicate.test(c0, c1)) {
+                if (survivors.length <= size) {
+                    survivors = Arrays.copyOf(survivors, survivors.length << 1);
+                }
+                survivors[size++] = c0;
+                survivors[size++] = c1;
+            }
+            i++;
+            if (i < fence) {
+                int j = Long.numberOfTrailingZeros(i);
+                c0 ^= basis0[j];
+                c1 ^= basis1[j];
+            }
+        }
+        index = i;
+        current0 = c0;
+        current1 = c1;
+        return Arrays.copyOf(survivors, size);
+    }
+
+    /**
+     * 残りの元をpoolで分割して並列に調べ，predicateを満たすものだけをグレイコード順に返す．
+     * 条件を満たさない元は配列を作らないので，使うメモリは生き残った元の数で決まる．
+     */
+    public List<long[]> filter(LongPairPredicate predicate, ForkJoinPool pool) {
+        long threshold = Math.max(MIN_SPLIT_SIZE, estimateSize() / ((long) pool.getParallelism() << 3));
+        long[] survivors = pool.invoke(new FilterTask(this, predicate, threshold));
+        List<long[]> list = new ArrayList<>(survivors.length >>> 1);
+        for (int k = 0; k < survivors.length; k += 2) {
+            list.add(new long[] { survivors[k], survivors[k + 1] });
+        }
+        return list;
+    }
+
+    /**
+     * 残りの元のうちpredicateを満たすものの個数をpoolで並列に数える．
+     */
+    public long count(LongPairPredicate predicate, ForkJoinPool pool) {
+        long threshold = Math.max(MIN_SPLIT_SIZE, estimateSize() / ((long) pool.getParallelism() << 3));
+        return pool.invoke(new CountTask(this, predicate, threshold));
+    }
+
+    private static final class FilterTask extends RecursiveTask<long[]> {
+        private final GrayCodeSpliterator spliterator;
+        private final LongPairPredicate predicate;
+        private final long threshold;
+
+        FilterTask(GrayCodeSpliterator spliterator, LongPairPredicate predicate, long threshold) {
+            this.spliterator = spliterator;
+            this.predicate = predicate;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected long[] compute() {
+            GrayCodeSpliterator prefix;
+            if (spliterator.estimateSize() <= threshold || (prefix = spliterator.trySplit()) == null) {
+                return spliterator.filterRemaining(predicate);
+            }
+            FilterTask left = new FilterTask(prefix, predicate, threshold);
+            left.fork();
+            long[] right = new FilterTask(spliterator, predicate, threshold).compute();
+            long[] l = left.join();
+            long[] joined = Arrays.copyOf(l, l.length + right.length);
+            System.arraycopy(right, 0, joined, l.length, right.length);
+            return joined;
+        }
+    }
+
+    private static final class CountTask extends RecursiveTask<Long> {
+        private final GrayCodeSpliterator spliterator;
+        private final LongPairPredicate predicate;
+        private final long threshold;
+
+        CountTask(GrayCodeSpliterator spliterator, LongPairPredicate predicate, long threshold) {
+            this.spliterator = spliterator;
+            this.predicate = predicate;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Long compute() {
+            GrayCodeSpliterator prefix;
+            if (spliterator.estimateSize() <= threshold || (prefix = spliterator.trySplit()) == null) {
+                long[] count = { 0 };
+                spliterator.forEachRemaining((lo, hi) -> {
+                    if (predicate.test(lo, hi))
+                        count[0]++;
+                });
+                return count[0];
+            }
+            CountTask left = new CountTask(prefix, predicate, threshold);
+            left.fork();
+            long right = new CountTask(spliterator, predicate, threshold).compute();
+            return left.join() + right;
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super long[]> action) {
+        return tryAdvance((lo, hi) -> action.accept(new long[] { lo, hi }));
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super long[]> action) {
+        forEachRemaining((lo, hi) -> action.accept(new long[] { lo, hi }));
+    }
+
+    @Override
+    public GrayCodeSpliterator trySplit() {
+        long remaining = fence - index;
+        if (remaining < 2) {
+            return null;
+        }
+        long mid = index + (remaining >>> 1);
+        GrayCodeSpliterator prefix = new GrayCodeSpliterator(this, index, mid);
+        index = mid;
+        seek(mid);
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+
+    public Stream<long[]> stream(boolean parallel) {
+        return StreamSupport.stream(this, parallel);
+    }
+}
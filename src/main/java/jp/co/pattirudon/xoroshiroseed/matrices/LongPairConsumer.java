@@ -0,0 +1,9 @@
+package jp.co.pattirudon.xoroshiroseed.matrices;
+
+/**
+ * 2語からなる128ビットのベクトル，例えば状態{s0, s1}を受け取る．
+ */
+@FunctionalInterface
+public interface LongPairConsumer {
+    void accept(long lo, long hi);
+}
@@ -0,0 +1,24 @@
+package jp.co.pattirudon.xoroshiroseed.matrices;
+
+/**
+ * 2語からなる128ビットのベクトル，例えば状態{s0, s1}についての条件．
+ */
+@FunctionalInterface
+public interface LongPairPredicate {
+    boolean test(long lo, long hi);
+
+    /**
+     * 条件を指定しなかったことを表すかどうか．真なら解をすべて持つことになるので，
+     * 呼び出し側は解空間の次元を確かめる．常に真を返すだけの条件でも，自分で作ったものは偽を返す．
+     */
+    default boolean isTrivial() {
+        return false;
+    }
+
+    /**
+     * 常に真を返し，{@link #isTrivial()}も真である条件．
+     */
+    public static LongPairPredicate all() {
+        return TrivialPredicate.INSTANCE;
+    }
+}
@@ -0,0 +1,424 @@
+package jp.co.pattirudon.xoroshiroseed.matrices;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * GF(2)上の行列．各行を64列ずつ{@code long}に詰めて保持する．
+ * 列jは{@code mat[i][j >>> 6]}の第{@code j & 63}ビットに対応し，列数を超えるビットは常に0とする．
+ */
+public class PackedBinaryMatrix {
+    public final int rows;
+    public final int columns;
+    public final int words;
+    public final long[][] mat;
+
+    /**
+     * {@link #enchelon()}が{@link #enchelonFourRussians()}を使う行数．
+     */
+    public static final int FOUR_RUSSIANS_MIN_ROWS = 256;
+    static final int FOUR_RUSSIANS_BLOCK = 8;
+
+    private PackedBinaryMatrix(int rows, int columns, long[][] mat) {
+        this.rows = rows;
+        this.columns = columns;
+        this.words = wordsFor(columns);
+        this.mat = mat;
+    }
+
+    public static int wordsFor(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    public static PackedBinaryMatrix getInstance(int rows, int columns, long[][] mat, boolean copy) {
+        if (copy) {
+            int words = wordsFor(columns);
+            long[][] _mat = new long[rows][];
+            for (int i = 0; i < rows; i++) {
+                _mat[i] = Arrays.copyOf(mat[i], words);
+            }
+            return new PackedBinaryMatrix(rows, columns, _mat);
+        } else {
+            return new PackedBinaryMatrix(rows, columns, mat);
+        }
+    }
+
+    private static PackedBinaryMatrix getInstance(PackedBinaryMatrix packedMatrix, boolean copy) {
+        return PackedBinaryMatrix.getInstance(packedMatrix.rows, packedMatrix.columns, packedMatrix.mat, copy);
+    }
+
+    public static PackedBinaryMatrix zeros(int rows, int columns) {
+        return new PackedBinaryMatrix(rows, columns, new long[rows][wordsFor(columns)]);
+    }
+
+    public static PackedBinaryMatrix ones(int n) {
+        PackedBinaryMatrix o = zeros(n, n);
+        for (int i = 0; i < n; i++) {
+            o.mat[i][i >>> 6] |= 1L << i;
+        }
+        return o;
+    }
+
+    public static long[] pack(byte[] bits) {
+        long[] packed = new long[wordsFor(bits.length)];
+        for (int j = 0; j < bits.length; j++) {
+            packed[j >>> 6] |= (1L & bits[j]) << j;
+        }
+        return packed;
+    }
+
+    public static byte[] unpack(long[] packed, int length) {
+        byte[] bits = new byte[length];
+        for (int j = 0; j < length; j++) {
+            bits[j] = (byte) ((packed[j >>> 6] >>> j) & 1);
+        }
+        return bits;
+    }
+
+    public int get(int i, int j) {
+        return (int) ((mat[i][j >>> 6] >>> j) & 1);
+    }
+
+    public void set(int i, int j, int b) {
+        if ((b & 1) == 0) {
+            mat[i][j >>> 6] &= ~(1L << j);
+        } else {
+            mat[i][j >>> 6] |= 1L << j;
+        }
+    }
+
+    /**
+     * 64x64のブロックごとに転置する．
+     */
+    public PackedBinaryMatrix transposed() {
+        PackedBinaryMatrix t = zeros(columns, rows);
+        long[] block = new long[64];
+        for (int bi = 0; bi < wordsFor(rows); bi++) {
+            for (int bj = 0; bj < words; bj++) {
+                int rowEnd = Math.min(64, rows - (bi << 6));
+                for (int r = 0; r < rowEnd; r++) {
+                    block[r] = mat[(bi << 6) + r][bj];
+                }
+                Arrays.fill(block, rowEnd, 64, 0L);
+                transpose64(block);
+                int columnEnd = Math.min(64, columns - (bj << 6));
+                for (int c = 0; c < columnEnd; c++) {
+                    t.mat[(bj << 6) + c][bi] = block[c];
+                }
+            }
+        }
+        return t;
+    }
+
+    /**
+     * 64x64のビット行列をその場で転置する．a[r]の第cビットが(r, c)成分．
+     */
+    public static void transpose64(long[] a) {
+        long m = 0x00000000ffffffffL;
+        for (int j = 32; j != 0; j >>>= 1, m ^= m << j) {
+            for (int k = 0; k < 64; k = ((k | j) + 1) & ~j) {
+                long t = ((a[k] >>> j) ^ a[k | j]) & m;
+                a[k] ^= t << j;
+                a[k | j] ^= t;
+            }
+        }
+    }
+
+    public void swapRows(int i, int j) {
+        long[] ri = mat[i];
+        long[] rj = mat[j];
+        mat[i] = rj;
+        mat[j] = ri;
+    }
+
+    public void addRows(int src, int dst) {
+        Gf2Kernel.current().xor(mat[dst], mat[src], words);
+    }
+
+    public PackedBinaryMatrix resized(int newRows) {
+        long[][] newMat = new long[newRows][];
+        for (int i = 0; i < Math.min(this.rows, newRows); i++) {
+            newMat[i] = Arrays.copyOf(this.mat[i], this.words);
+        }
+        for (int i = this.rows; i < newRows; i++) {
+            newMat[i] = new long[this.words];
+        }
+        return new PackedBinaryMatrix(newRows, this.columns, newMat);
+    }
+
+    public long[] multiplyRight(long[] column) {
+        if (words != column.length) {
+            throw new IllegalColumnCountException(
+                    "The length of the column vector must equal to the number of the columns of this matrix");
+        }
+        long[] result = new long[wordsFor(rows)];
+        Gf2Kernel kernel = Gf2Kernel.current();
+        for (int i = 0; i < rows; i++) {
+            result[i >>> 6] |= (long) kernel.dot(mat[i], column, words) << i;
+        }
+        return result;
+    }
+
+    public long[] multiplyLeft(long[] row) {
+        if (wordsFor(rows) != row.length) {
+            throw new IllegalRowCountException(
+                    "The length of the row vector must equal to the number of the rows of this matrix");
+        }
+        long[] result = new long[words];
+        Gf2Kernel kernel = Gf2Kernel.current();
+        for (int wi = 0; wi < row.length; wi++) {
+            long bits = row[wi];
+            while (bits != 0) {
+                int i = (wi << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                kernel.xor(result, mat[i], words);
+            }
+        }
+        return result;
+    }
+
+    public PackedBinaryMatrix multiplyRight(PackedBinaryMatrix another) {
+        if (this.columns != another.rows) {
+            throw new IllegalColumnCountException(
+                    "The number of the rows of another matrix must equal to the number of the columns of this matrix");
+        }
+        long[][] _mat = new long[this.rows][];
+        for (int i = 0; i < this.rows; i++) {
+            _mat[i] = another.multiplyLeft(this.mat[i]);
+        }
+        return new PackedBinaryMatrix(this.rows, another.columns, _mat);
+    }
+
+    public PackedBinaryMatrix add(PackedBinaryMatrix another) {
+        if (this.rows != another.rows) {
+            throw new IllegalRowCountException(
+                    "The two matrices must have same number of rows.");
+        } else if (this.columns != another.columns) {
+            throw new IllegalColumnCountException(
+                    "The two matrices must have same number of columns.");
+        }
+        long[][] _mat = new long[this.rows][];
+        Gf2Kernel kernel = Gf2Kernel.current();
+        for (int i = 0; i < this.rows; i++) {
+            _mat[i] = Arrays.copyOf(this.mat[i], this.words);
+            kernel.xor(_mat[i], another.mat[i], this.words);
+        }
+        return new PackedBinaryMatrix(this.rows, this.columns, _mat);
+    }
+
+    /**
+     * 行基本変形で簡約階段行列にする．thisに変更は加えない．結果の各項目は次のとおり．
+     * <ul>
+     * <li>f: thisの簡約階段形(rows x columns)．先頭のrank行の第i行はpivots.get(i)列目が1で，
+     * その列の他の行は0．残りの行は0．</li>
+     * <li>p: 行に施した変形を表すrows x rowsの正則行列．p・this = f．
+     * 第rank行以降はthisの左零空間，すなわちk・this = 0となるkの基底．</li>
+     * <li>rank: thisの階数．</li>
+     * <li>pivots: ピボットの列番号を昇順に並べたもの．長さはrank．</li>
+     * </ul>
+     * 行数が{@link #FOUR_RUSSIANS_MIN_ROWS}以上なら{@link #enchelonFourRussians()}を，そうでなければ
+     * {@link #enchelonGaussJordan()}を使う．どちらも同じ結果を返す．
+     */
+    public Enchelon enchelon() {
+        return rows < FOUR_RUSSIANS_MIN_ROWS ? enchelonGaussJordan() : enchelonFourRussians();
+    }
+
+    /**
+     * 列ごとにすべての行を掃き出す．{@link BinaryMatrix#enchelon()}と同じ手順．
+     */
+    public Enchelon enchelonGaussJordan() {
+        PackedBinaryMatrix f = PackedBinaryMatrix.getInstance(this, true);
+        PackedBinaryMatrix p = PackedBinaryMatrix.ones(rows);
+        Gf2Kernel kernel = Gf2Kernel.current();
+        int rank = 0;
+        List<Integer> pivotsList = new ArrayList<>();
+        for (int j = 0; j < f.columns; j++) {
+            int w = j >>> 6;
+            long bit = 1L << j;
+            for (int i = rank; i < f.rows; i++) {
+                if ((f.mat[i][w] & bit) != 0) {
+                    /* erase other rows */
+                    for (int k = 0; k < f.rows; k++) {
+                        if ((k != i) && ((f.mat[k][w] & bit) != 0)) {
+                            kernel.xor(f.mat[k], f.mat[i], f.words);
+                            kernel.xor(p.mat[k], p.mat[i], p.words);
+                        }
+                    }
+                    f.swapRows(i, rank);
+                    p.swapRows(i, rank);
+                    pivotsList.add(j);
+                    rank++;
+                    break;
+                }
+            }
+        }
+        return new Enchelon(f, p, rank, pivotsList);
+    }
+
+    /**
+     * Four Russians法(M4RI)で掃き出す．{@link #enchelonGaussJordan()}と同じf，p，ピボットを返す．
+     * <p>
+     * 列をFOUR_RUSSIANS_BLOCK列ずつのブロックに分けて処理する．ブロックごとに
+     * <ol>
+     * <li>rank以降の行のブロック内のビットだけで{@link #enchelonGaussJordan()}の手順をなぞり，
+     * ピボットの列，ピボットになる行，行の入れ替えを決める．</li>
+     * <li>ピボットになる行だけをその手順で掃き出し，ピボットの列で単位行列になるm本の行を作る．</li>
+     * <li>それらの和2^m通りをグレイコード順に表にし，残りの行にはピボットの列のビットで引いた表の行を1回足す．</li>
+     * </ol>
+     * 掃き出し終わった行はピボットの列がすべて0で，足された行はピボットの行の張る空間に入るので，
+     * 足す行はピボットの列のビットだけで決まり，列ごとに掃き出した結果と一致する．
+     */
+    public Enchelon enchelonFourRussians() {
+        PackedBinaryMatrix f = PackedBinaryMatrix.getInstance(this, true);
+        PackedBinaryMatrix p = PackedBinaryMatrix.ones(rows);
+        Gf2Kernel kernel = Gf2Kernel.current();
+        int rank = 0;
+        List<Integer> pivotsList = new ArrayList<>();
+        int[] blockBits = new int[rows];
+        int[] order = new int[rows];
+        boolean[] isPivot = new boolean[rows];
+        int[] pivotColumns = new int[FOUR_RUSSIANS_BLOCK];
+        long[][] tableF = new long[1 << FOUR_RUSSIANS_BLOCK][];
+        long[][] tableP = new long[1 << FOUR_RUSSIANS_BLOCK][];
+        long[][] reordered = new long[rows][];
+        for (int j0 = 0; j0 < f.columns && rank < f.rows; j0 += FOUR_RUSSIANS_BLOCK) {
+            int k = Math.min(FOUR_RUSSIANS_BLOCK, f.columns - j0);
+            int rank0 = rank;
+            for (int i = rank0; i < rows; i++) {
+                blockBits[i] = (int) bits(f.mat[i], j0, k);
+                order[i] = i;
+            }
+            /* 1. ブロック内のビットだけでピボットと行の入れ替えを決める */
+            int m = 0;
+            for (int c = 0; c < k && rank < rows; c++) {
+                int bit = 1 << c;
+                for (int i = rank; i < rows; i++) {
+                    if ((blockBits[i] & bit) != 0) {
+                        for (int r = rank0; r < rows; r++) {
+                            if (r != i && (blockBits[r] & bit) != 0) {
+                                blockBits[r] ^= blockBits[i];
+                            }
+                        }
+                        int b = blockBits[i];
+                        blockBits[i] = blockBits[rank];
+                        blockBits[rank] = b;
+                        int o = order[i];
+                        order[i] = order[rank];
+                        order[rank] = o;
+                        pivotColumns[m++] = c;
+                        pivotsList.add(j0 + c);
+                        rank++;
+                        break;
+                    }
+                }
+            }
+            if (m == 0) {
+                continue;
+            }
+            /* 2. ピボットになる行をピボットの列で単位行列にする */
+            long[][] pivotF = new long[m][];
+            long[][] pivotP = new long[m][];
+            for (int t = 0; t < m; t++) {
+                pivotF[t] = f.mat[order[rank0 + t]].clone();
+                pivotP[t] = p.mat[order[rank0 + t]].clone();
+                isPivot[order[rank0 + t]] = true;
+            }
+            for (int t = 0; t < m; t++) {
+                int j = j0 + pivotColumns[t];
+                for (int u = 0; u < m; u++) {
+                    if (u != t && ((pivotF[u][j >>> 6] >>> j) & 1) != 0) {
+                        kernel.xor(pivotF[u], pivotF[t], f.words);
+                        kernel.xor(pivotP[u], pivotP[t], p.words);
+                    }
+                }
+            }
+            /* 3. ピボットの行の和の表を作り，残りの行に足す */
+            tableF[0] = new long[f.words];
+            tableP[0] = new long[p.words];
+            int previous = 0;
+            for (int g = 1; g < 1 << m; g++) {
+                int gray = g ^ (g >>> 1);
+                int t = Integer.numberOfTrailingZeros(g);
+                tableF[gray] = tableF[previous].clone();
+                tableP[gray] = tableP[previous].clone();
+                kernel.xor(tableF[gray], pivotF[t], f.words);
+                kernel.xor(tableP[gray], pivotP[t], p.words);
+                previous = gray;
+            }
+            for (int r = 0; r < rows; r++) {
+                if (isPivot[r]) {
+                    continue;
+                }
+                long v = bits(f.mat[r], j0, k);
+                int index = 0;
+                for (int t = 0; t < m; t++) {
+                    index |= (int) ((v >>> pivotColumns[t]) & 1) << t;
+                }
+                if (index != 0) {
+                    kernel.xor(f.mat[r], tableF[index], f.words);
+                    kernel.xor(p.mat[r], tableP[index], p.words);
+                }
+            }
+            /* 行を列ごとに掃き出したときと同じ順に並べる */
+            for (int i = rank0; i < rows; i++) {
+                reordered[i] = i < rank ? pivotF[i - rank0] : f.mat[order[i]];
+            }
+            System.arraycopy(reordered, rank0, f.mat, rank0, rows - rank0);
+            for (int i = rank0; i < rows; i++) {
+                reordered[i] = i < rank ? pivotP[i - rank0] : p.mat[order[i]];
+            }
+            System.arraycopy(reordered, rank0, p.mat, rank0, rows - rank0);
+            for (int t = 0; t < m; t++) {
+                isPivot[order[rank0 + t]] = false;
+            }
+        }
+        return new Enchelon(f, p, rank, pivotsList);
+    }
+
+    /**
+     * rowの第j0列から始まるk列(k &lt;= 32)を下位ビットから並べたもの．
+     */
+    private static long bits(long[] row, int j0, int k) {
+        int w = j0 >>> 6;
+        int b = j0 & 63;
+        long x = row[w] >>> b;
+        if (64 < b + k) {
+            x |= row[w + 1] << (64 - b);
+        }
+        return x & ((1L << k) - 1);
+    }
+
+    public PackedBinaryMatrix generalizedInverse() {
+        Enchelon e = enchelon();
+        PackedBinaryMatrix p = e.p;
+        int rank = e.rank;
+        List<Integer> pivots = e.pivots;
+        PackedBinaryMatrix permp = p.resized(this.columns);
+        for (int i = rank - 1; i >= 0; i--) {
+            int columnIndex = pivots.get(i);
+            permp.swapRows(i, columnIndex);
+        }
+        return permp;
+    }
+
+    public long[][] rowBasis() {
+        Enchelon e = enchelon();
+        PackedBinaryMatrix f = e.f;
+        return Arrays.copyOf(f.mat, e.rank);
+    }
+
+    public static class Enchelon {
+        public final PackedBinaryMatrix f;
+        public final PackedBinaryMatrix p;
+        public final int rank;
+        public final List<Integer> pivots;
+
+        Enchelon(PackedBinaryMatrix f, PackedBinaryMatrix p, int rank, List<Integer> pivots) {
+            this.f = f;
+            this.p = p;
+            this.rank = rank;
+            this.pivots = pivots;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package jp.co.pattirudon.xoroshiroseed.matrices;
+
+final class ScalarGf2Kernel extends Gf2Kernel {
+    static final ScalarGf2Kernel INSTANCE = new ScalarGf2Kernel();
+
+    @Override
+    public void xor(long[] dst, long[] src, int words) {
+        for (int w = 0; w < words; w++) {
+            dst[w] ^= src[w];
+        }
+    }
+
+    @Override
+    public int dot(long[] a, long[] b, int words) {
+        long x = 0;
+        for (int w = 0; w < words; w++) {
+            x ^= a[w] & b[w];
+        }
+        return Long.bitCount(x) & 1;
+    }
+
+    @Override
+    public String name() {
+        return SCALAR;
+    }
+}
@@ -0,0 +1,228 @@
+package jp.co.pattirudon.xoroshiroseed.matrices;
+
+import java.util.Arrays;
+
+/**
+ * 64変数の連立一次方程式 row_t・x = base_t ^ motions[t - start] を，
+ * 直近motions.length本の式からなる窓をずらしながら解く．
+ * <p>
+ * 掃き出しの結果は窓をずらしても捨てずに使い回す．各基底ベクトルには，それを作るのに使った式のうち
+ * 最も古い時刻をラベルとして持たせ，新しい式を追加するときは新しいラベルを持つベクトルを基底に残す．
+ * こうすると，ラベルが窓の先頭以降である基底ベクトルだけで窓内の式の張る空間が得られる．
+ * 右辺はmotionsと窓の位置に依存するので，各ベクトルがどの式の和であるかを環状のビット列で覚えておき，
+ * 問い合わせのときに回転したmotionsとの内積で求める．0に簡約された式は窓内の従属関係として残し，
+ * 整合性の判定に使う．生きている従属関係はラベルの位置のビット集合で持ち，ラベルが窓から外れたら落とすので，
+ * 判定ではそれだけを調べればよい．
+ */
+public class SlidingWindowBasis {
+    public final int length;
+    private final int ringBits;
+    private final int ringWords;
+    private final long[] motions;
+    private final long[] rotated;
+
+    private final long[] basis = new long[64];
+    private final long[] labels = new long[64];
+    private final long[] baseBits = new long[64];
+    private final long[][] deps;
+    private final boolean[] present = new boolean[64];
+
+    /* ラベルが窓内にある従属関係の位置 */
+    private final long[] relationLive;
+    private final long[] relationBaseBits;
+    private final long[][] relationDeps;
+
+    private long[] carriedDeps;
+    private long count = 0;
+    private long rotatedStart = -1;
+
+    public SlidingWindowBasis(byte[] motions) {
+        if (motions.length == 0) {
+            throw new IllegalArgumentException("Motions cannot be empty.");
+        }
+        this.length = motions.length;
+        this.ringWords = PackedBinaryMatrix.wordsFor(length);
+        this.ringBits = ringWords << 6;
+        this.motions = PackedBinaryMatrix.pack(motions);
+        this.rotated = new long[ringWords];
+        this.deps = new long[64][ringWords];
+        this.relationLive = new long[ringWords];
+        this.relationBaseBits = new long[ringBits];
+        this.relationDeps = new long[ringBits][ringWords];
+        this.carriedDeps = new long[ringWords];
+    }
+
+    private int slot(long time) {
+        return (int) (time % ringBits);
+    }
+
+    /**
+     * 最新の時刻の式 row・x = base ^ motions[...] を追加し，最も古い式を窓から外す．
+     * @param row 係数
+     * @param base 右辺のうちmotionsに依らない部分(0か1)
+     */
+    public void push(long row, int base) {
+        long time = count++;
+        long oldest = count - length;
+        int s = slot(time);
+        if (0 < oldest) {
+            int gone = slot(oldest - 1);
+            relationLive[gone >>> 6] &= ~(1L << gone);
+        }
+        relationLive[s >>> 6] &= ~(1L << s);
+        long v = row;
+        long b = base & 1L;
+        long label = time;
+        long[] d = carriedDeps;
+        Arrays.fill(d, 0L);
+        d[s >>> 6] = 1L << s;
+        while (v != 0) {
+            int p = 63 - Long.numberOfLeadingZeros(v);
+            if (!present[p] || labels[p] < oldest) {
+                basis[p] = v;
+                baseBits[p] = b;
+                labels[p] = label;
+                carriedDeps = deps[p];
+                deps[p] = d;
+                present[p] = true;
+                return;
+            }
+            if (labels[p] < label) {
+                long tv = basis[p];
+                basis[p] = v;
+                v = tv;
+                long tb = baseBits[p];
+                baseBits[p] = b;
+                b = tb;
+                long tl = labels[p];
+                labels[p] = label;
+                label = tl;
+                long[] td = deps[p];
+                deps[p] = d;
+                d = td;
+            }
+            v ^= basis[p];
+            b ^= baseBits[p];
+            long[] dp = deps[p];
+            for (int w = 0; w < ringWords; w++) {
+                d[w] ^= dp[w];
+            }
+            if (label < oldest) {
+                carriedDeps = d;
+                return;
+            }
+        }
+        int r = slot(label);
+        relationLive[r >>> 6] |= 1L << r;
+        relationBaseBits[r] = b;
+        System.arraycopy(d, 0, relationDeps[r], 0, ringWords);
+        carriedDeps = d;
+    }
+
+    public boolean isFull() {
+        return length <= count;
+    }
+
+    /**
+     * 窓の先頭の時刻．
+     */
+    public long start() {
+        return count - length;
+    }
+
+    private long[] rotatedMotions() {
+        long start = start();
+        if (rotatedStart != start) {
+            /* rotated[(start + k) mod ringBits] = motions[k] */
+            int shift = slot(start);
+            Arrays.fill(rotated, 0L);
+            for (int w = 0; w < ringWords; w++) {
+                long word = motions[w];
+                int pos = (w << 6) + shift;
+                int dw = (pos >>> 6) % ringWords;
+                int bit = pos & 63;
+                rotated[dw] |= word << bit;
+                if (bit != 0) {
+                    rotated[(dw + 1) % ringWords] |= word >>> (64 - bit);
+                }
+            }
+            rotatedStart = start;
+        }
+        return rotated;
+    }
+
+    private static long parity(long[] a, long[] b) {
+        long x = 0;
+        for (int w = 0; w < a.length; w++) {
+            x ^= a[w] & b[w];
+        }
+        return Long.bitCount(x) & 1L;
+    }
+
+    private boolean valid(int p) {
+        return present[p] && start() <= labels[p];
+    }
+
+    public int rank() {
+        int rank = 0;
+        for (int p = 0; p < 64; p++) {
+            if (valid(p))
+                rank++;
+        }
+        return rank;
+    }
+
+    /**
+     * 窓内の式が解を持つかどうか．
+     */
+    public boolean isConsistent() {
+        if (!isFull()) {
+            throw new IllegalStateException("The window is not filled yet.");
+        }
+        long[] m = rotatedMotions();
+        for (int w = 0; w < ringWords; w++) {
+            for (long live = relationLive[w]; live != 0; live &= live - 1) {
+                int r = (w << 6) + Long.numberOfTrailingZeros(live);
+                if ((relationBaseBits[r] ^ parity(relationDeps[r], m)) != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 自由変数をすべて0とした特殊解．窓内の式が解を持つときだけ意味を持つ．
+     */
+    public long particularSolution() {
+        long[] m = rotatedMotions();
+        long x = 0;
+        for (int p = 0; p < 64; p++) {
+            if (valid(p)) {
+                long bit = baseBits[p] ^ parity(deps[p], m) ^ (Long.bitCount(basis[p] & x) & 1L);
+                x |= bit << p;
+            }
+        }
+        return x;
+    }
+
+    /**
+     * 係数行列の零空間の基底．
+     */
+    public long[] nullBasis() {
+        long[] nullBasis = new long[64 - rank()];
+        int k = 0;
+        for (int q = 0; q < 64; q++) {
+            if (!valid(q)) {
+                long x = 1L << q;
+                for (int p = 0; p < 64; p++) {
+                    if (valid(p)) {
+                        x |= (Long.bitCount(basis[p] & x) & 1L) << p;
+                    }
+                }
+                nullBasis[k++] = x;
+            }
+        }
+        return nullBasis;
+    }
+}
@@ -0,0 +1,21 @@
+package jp.co.pattirudon.xoroshiroseed.matrices;
+
+/**
+ * {@link LongPairPredicate#all()}の実体．インターフェースのフィールドは公開されてしまうので，パッケージの中に隠す．
+ */
+final class TrivialPredicate implements LongPairPredicate {
+    static final TrivialPredicate INSTANCE = new TrivialPredicate();
+
+    private TrivialPredicate() {
+    }
+
+    @Override
+    public boolean test(long lo, long hi) {
+        return true;
+    }
+
+    @Override
+    public boolean isTrivial() {
+        return true;
+    }
+}
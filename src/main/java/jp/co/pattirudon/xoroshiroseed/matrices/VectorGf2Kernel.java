@@ -0,0 +1,48 @@
+package jp.co.pattirudon.xoroshiroseed.matrices;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link LongVector}で一度に複数の語を処理する．1ベクトルに満たない行はスカラーで処理する．
+ */
+final class VectorGf2Kernel extends Gf2Kernel {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    @Override
+    public void xor(long[] dst, long[] src, int words) {
+        int w = 0;
+        for (int bound = SPECIES.loopBound(words); w < bound; w += SPECIES.length()) {
+            LongVector d = LongVector.fromArray(SPECIES, dst, w);
+            d.lanewise(VectorOperators.XOR, LongVector.fromArray(SPECIES, src, w)).intoArray(dst, w);
+        }
+        for (; w < words; w++) {
+            dst[w] ^= src[w];
+        }
+    }
+
+    @Override
+    public int dot(long[] a, long[] b, int words) {
+        int w = 0;
+        long x = 0;
+        int bound = SPECIES.loopBound(words);
+        if (0 < bound) {
+            LongVector acc = LongVector.zero(SPECIES);
+            for (; w < bound; w += SPECIES.length()) {
+                LongVector va = LongVector.fromArray(SPECIES, a, w);
+                acc = acc.lanewise(VectorOperators.XOR, va.and(LongVector.fromArray(SPECIES, b, w)));
+            }
+            x = acc.reduceLanes(VectorOperators.XOR);
+        }
+        for (; w < words; w++) {
+            x ^= a[w] & b[w];
+        }
+        return Long.bitCount(x) & 1;
+    }
+
+    @Override
+    public String name() {
+        return VECTOR;
+    }
+}
@@ -0,0 +1,189 @@
+package jp.co.pattirudon.xoroshiroseed.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * 一つの問い合わせについての計測値．
+ * {@link #attach()}したスレッドでは{@link #current()}がこのインスタンスを返し，探索の各段階がここに値を足す．
+ * 何もattachしていないスレッドでは値を捨てるインスタンスを返すので，計測しないときのコストは小さい．
+ * 各段階は{@link SolverPhaseEvent}としてJDK Flight Recorderにも記録される．
+ */
+public class SolverMetrics {
+    private static final ThreadLocal<SolverMetrics> CURRENT = new ThreadLocal<>();
+    private static final SolverMetrics DISABLED = new SolverMetrics(false);
+    private static final com.sun.management.ThreadMXBean THREADS = threadMXBean();
+
+    private final boolean enabled;
+    private final LongAdder framesScanned = new LongAdder();
+    private final LongAdder eliminations = new LongAdder();
+    private final LongAdder windowUpdates = new LongAdder();
+    private final LongAdder candidates = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAccumulator nullRank = new LongAccumulator(Math::max, -1);
+    private final Map<String, LongAdder> phaseNanos = new ConcurrentHashMap<>();
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos = -1;
+
+    public SolverMetrics() {
+        this(true);
+    }
+
+    private SolverMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+            return bean;
+        }
+        return null;
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    public static SolverMetrics current() {
+        SolverMetrics m = CURRENT.get();
+        return m == null ? DISABLED : m;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * このスレッドの計測先をthisにする．閉じると元に戻し，その間にこのスレッドで確保したバイト数を足す．
+     * すでにthisがattachされているスレッドでは何もしない．
+     */
+    public Scope attach() {
+        SolverMetrics previous = CURRENT.get();
+        if (previous == this || !enabled) {
+            return () -> {
+            };
+        }
+        CURRENT.set(this);
+        long allocated = currentThreadAllocatedBytes();
+        return () -> {
+            allocatedBytes.add(currentThreadAllocatedBytes() - allocated);
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public static Phase phase(String name) {
+        return new Phase(current(), name);
+    }
+
+    public static final class Phase implements AutoCloseable {
+        private final SolverMetrics metrics;
+        private final String name;
+        private final SolverPhaseEvent event = new SolverPhaseEvent();
+        private final long start = System.nanoTime();
+        private long frames, candidates;
+
+        private Phase(SolverMetrics metrics, String name) {
+            this.metrics = metrics;
+            this.name = name;
+            event.begin();
+        }
+
+        public Phase frames(long frames) {
+            this.frames += frames;
+            metrics.addFramesScanned(frames);
+            return this;
+        }
+
+        public Phase candidates(long candidates) {
+            this.candidates += candidates;
+            metrics.addCandidates(candidates);
+            return this;
+        }
+
+        @Override
+        public void close() {
+            event.end();
+            if (metrics.enabled) {
+                metrics.phaseNanos.computeIfAbsent(name, k -> new LongAdder()).add(System.nanoTime() - start);
+            }
+            if (event.shouldCommit()) {
+                event.phase = name;
+                event.frames = frames;
+                event.candidates = candidates;
+                event.commit();
+            }
+        }
+    }
+
+    public void addFramesScanned(long n) {
+        if (enabled)
+            framesScanned.add(n);
+    }
+
+    public void addEliminations(long n) {
+        if (enabled)
+            eliminations.add(n);
+    }
+
+    public void addWindowUpdates(long n) {
+        if (enabled)
+            windowUpdates.add(n);
+    }
+
+    public void addCandidates(long n) {
+        if (enabled)
+            candidates.add(n);
+    }
+
+    public void recordNullRank(int rank) {
+        if (enabled)
+            nullRank.accumulate(rank);
+    }
+
+    /**
+     * 問い合わせの終わりを記録する．
+     */
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public ObjectNode toJson(ObjectMapper mapper) {
+        long end = endNanos < 0 ? System.nanoTime() : endNanos;
+        double seconds = (end - startNanos) / 1e9;
+        ObjectNode node = mapper.createObjectNode();
+        node.put("elapsedMillis", (end - startNanos) / 1_000_000);
+        node.put("framesScanned", framesScanned.sum());
+        node.put("framesPerSecond", seconds > 0 ? framesScanned.sum() / seconds : 0);
+        node.put("eliminations", eliminations.sum());
+        node.put("windowUpdates", windowUpdates.sum());
+        long rank = nullRank.get();
+        if (rank < 0) {
+            node.putNull("nullRank");
+        } else {
+            node.put("nullRank", rank);
+        }
+        node.put("candidates", candidates.sum());
+        node.put("allocatedBytes", allocatedBytes.sum());
+        ObjectNode phases = node.putObject("phaseMillis");
+        new TreeMap<>(phaseNanos).forEach((k, v) -> phases.put(k, v.sum() / 1e6));
+        return node;
+    }
+}
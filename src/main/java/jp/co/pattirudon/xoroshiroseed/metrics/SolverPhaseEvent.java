@@ -0,0 +1,27 @@
+package jp.co.pattirudon.xoroshiroseed.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 探索の各段階にかかった時間を表すJDK Flight Recorderのイベント．
+ */
+@Name("jp.co.pattirudon.xoroshiroseed.SolverPhase")
+@Label("Solver Phase")
+@Category("xoroshiroseed")
+@Description("A phase of a seed solver query")
+public class SolverPhaseEvent extends Event {
+    @Label("Phase")
+    public String phase;
+
+    @Label("Frames")
+    @Description("Frames scanned in this phase")
+    public long frames;
+
+    @Label("Candidates")
+    @Description("Candidates produced in this phase")
+    public long candidates;
+}
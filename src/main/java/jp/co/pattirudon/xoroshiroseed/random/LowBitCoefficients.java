@@ -0,0 +1,52 @@
+package jp.co.pattirudon.xoroshiroseed.random;
+
+/**
+ * フレームiのnextInt() &amp; 1を，そのフレームの初期状態(s0, s1)の各ビットの和として表す係数を順に求める．
+ * 最下位ビットは s0 ^ s1 の第0ビット，すなわち行ベクトルc = (1, 1)と状態の内積なので，
+ * フレームiの係数は c・T^i になる．64個の単位ベクトルの状態を別々に進める代わりに，
+ * この行ベクトルに転置した遷移を掛けることで，各フレームの係数を語の演算数回で得る．
+ */
+public final class LowBitCoefficients {
+    private long x, y;
+
+    /**
+     * @param frame 最初の係数のフレーム．負のときは初期状態より前のフレーム
+     */
+    public LowBitCoefficients(long frame) {
+        this(1L, 1L, frame);
+    }
+
+    /**
+     * c = (mask0, mask1)として，(s0 &amp; mask0) ^ (s1 &amp; mask1)の各ビットの和の係数を求める．
+     */
+    public LowBitCoefficients(long mask0, long mask1, long frame) {
+        long[] r = XoroshiroTransition.moveRow(new long[] { mask0, mask1 }, frame);
+        this.x = r[0];
+        this.y = r[1];
+    }
+
+    /**
+     * s0の第jビットの係数を第jビットに持つ語．
+     */
+    public long s0() {
+        return x;
+    }
+
+    /**
+     * s1の第jビットの係数を第jビットに持つ語．
+     */
+    public long s1() {
+        return y;
+    }
+
+    /**
+     * 次のフレームの係数に進める．
+     * 遷移は t = s0 ^ s1 として (rotl(s0, 24) ^ t ^ (t &lt;&lt; 16), rotl(t, 37)) なので，
+     * 係数(x, y)は u = x ^ (x &gt;&gt;&gt; 16) ^ rotr(y, 37) として (rotr(x, 24) ^ u, u) に移る．
+     */
+    public void next() {
+        long u = x ^ (x >>> 16) ^ Long.rotateRight(y, 37);
+        x = Long.rotateRight(x, 24) ^ u;
+        y = u;
+    }
+}
@@ -0,0 +1,122 @@
+package jp.co.pattirudon.xoroshiroseed.random;
+
+import java.util.Arrays;
+
+import jp.co.pattirudon.xoroshiroseed.matrices.PackedBinaryMatrix;
+
+/**
+ * 1フレームごとに観測する，状態の線形な関数の組．
+ * 第j式はそのフレームの状態(s0, s1)について (s0 &amp; mask0[j]) ^ (s1 &amp; mask1[j]) の各ビットの和を返す．
+ * <p>
+ * モーションの列は，フレームごとにsize()個の観測をこの順に並べたものとして読む．
+ * next()の第1ビット以上は桁上がりを含むので線形ではなく，ここには書けない．
+ */
+public final class ObservationSpec {
+    /**
+     * nextInt() &amp; 1 だけを観測する．
+     */
+    public static final ObservationSpec LOW_BIT = new ObservationSpec(new long[] { 1L }, new long[] { 1L });
+
+    private final long[] mask0, mask1;
+
+    public ObservationSpec(long[] mask0, long[] mask1) {
+        if (mask0.length != mask1.length) {
+            throw new IllegalArgumentException("The numbers of masks must be same.");
+        } else if (mask0.length == 0) {
+            throw new IllegalArgumentException("Observations cannot be empty.");
+        }
+        for (int j = 0; j < mask0.length; j++) {
+            if (mask0[j] == 0 && mask1[j] == 0) {
+                throw new IllegalArgumentException("Observation %d observes nothing.".formatted(j));
+            }
+        }
+        this.mask0 = mask0.clone();
+        this.mask1 = mask1.clone();
+    }
+
+    /**
+     * 1フレームあたりの式の数．
+     */
+    public int size() {
+        return mask0.length;
+    }
+
+    public long mask0(int j) {
+        return mask0[j];
+    }
+
+    public long mask1(int j) {
+        return mask1[j];
+    }
+
+    public boolean isLowBit() {
+        return equals(LOW_BIT);
+    }
+
+    /**
+     * length個の観測が何フレーム分か．割り切れなければ例外を投げる．
+     */
+    public int frames(int length) {
+        if (length % size() != 0) {
+            throw new IllegalArgumentException(
+                    "The number of motions must be a multiple of %d observations per frame.".formatted(size()));
+        }
+        return length / size();
+    }
+
+    /**
+     * 状態(s0, s1)からframesフレーム分の観測．
+     */
+    public byte[] observe(long s0, long s1, int frames) {
+        int k = size();
+        byte[] observed = new byte[frames * k];
+        for (int t = 0; t < frames; t++) {
+            for (int j = 0; j < k; j++) {
+                observed[t * k + j] = (byte) (Long.bitCount((s0 & mask0[j]) ^ (s1 & mask1[j])) & 1);
+            }
+            long n0 = Xoroshiro.nextS0(s0, s1);
+            s1 = Xoroshiro.nextS1(s0, s1);
+            s0 = n0;
+        }
+        return observed;
+    }
+
+    /**
+     * フレームframeから始まる各式の係数を進めるもの．第j要素が第j式．
+     */
+    public LowBitCoefficients[] coefficients(long frame) {
+        LowBitCoefficients[] coefficients = new LowBitCoefficients[size()];
+        for (int j = 0; j < coefficients.length; j++) {
+            coefficients[j] = new LowBitCoefficients(mask0[j], mask1[j], frame);
+        }
+        return coefficients;
+    }
+
+    /**
+     * 行が状態の128ビット，列がframesフレーム分の観測に対応する行列．
+     * LOW_BITならsingleBitsMatrix(frames)と等しい．
+     */
+    public PackedBinaryMatrix matrix(int frames) {
+        int k = size();
+        long[][] rows = new long[frames * k][];
+        LowBitCoefficients[] coefficients = coefficients(0);
+        for (int t = 0; t < frames; t++) {
+            for (int j = 0; j < k; j++) {
+                rows[t * k + j] = new long[] { coefficients[j].s0(), coefficients[j].s1() };
+                coefficients[j].next();
+            }
+        }
+        return PackedBinaryMatrix.getInstance(frames * k, 128, rows, false).transposed();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ObservationSpec spec && Arrays.equals(mask0, spec.mask0)
+                && Arrays.equals(mask1, spec.mask1);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(mask0) + Arrays.hashCode(mask1);
+    }
+}
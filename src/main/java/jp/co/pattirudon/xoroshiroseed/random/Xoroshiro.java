@@ -2,7 +2,7 @@ package jp.co.pattirudon.xoroshiroseed.random;
 
 public class Xoroshiro {
     public static final long XOROSHIRO_CONST = 0x82a2b175229d6a5bL;
-    public int i = 0;
+    public long i = 0;
 
     public final long[] s = { 0L, 0L };
 
@@ -32,6 +32,52 @@ public class Xoroshiro {
         return result;
     }
 
+    /**
+     * 状態(s0, s1)から一つ進めた状態のs0．
+     */
+    public static long nextS0(long s0, long s1) {
+        long t = s0 ^ s1;
+        return rotl(s0, 24) ^ t ^ (t << 16);
+    }
+
+    /**
+     * 状態(s0, s1)から一つ進めた状態のs1．
+     */
+    public static long nextS1(long s0, long s1) {
+        return rotl(s0 ^ s1, 37);
+    }
+
+    /**
+     * 状態(s0, s1)で次にnextInt()が返す値の最下位ビット．和の最下位ビットはXORと等しい．
+     */
+    public static int lowBit(long s0, long s1) {
+        return (int) ((s0 ^ s1) & 1);
+    }
+
+    /**
+     * frames回分のnextInt() &amp; 1を，第jフレームがout[j &gt;&gt;&gt; 6]の第(j &amp; 63)ビットになるように詰めて書き込み，
+     * その分だけ状態を進める．最後の語の使わないビットは0にする．
+     */
+    public void fillLowBits(long[] out, int frames) {
+        long s0 = s[0];
+        long s1 = s[1];
+        for (int w = 0, j = 0; j < frames; w++) {
+            int end = Math.min(64, frames - j);
+            long word = 0;
+            for (int b = 0; b < end; b++) {
+                long t = s0 ^ s1;
+                word |= (t & 1L) << b;
+                s0 = rotl(s0, 24) ^ t ^ (t << 16);
+                s1 = rotl(t, 37);
+            }
+            out[w] = word;
+            j += end;
+        }
+        s[0] = s0;
+        s[1] = s1;
+        i += frames;
+    }
+
     public long privious() {
         long t0 = s[0];
         long t1 = s[1];
@@ -45,6 +91,21 @@ public class Xoroshiro {
         return result;
     }
 
+    /**
+     * nフレーム進める．nが負のときは-nフレーム戻す．
+     */
+    public void jump(long n) {
+        XoroshiroTransition.moveInPlace(s, n);
+        i += n;
+    }
+
+    /**
+     * nフレーム戻す．nが負のときは-nフレーム進める．
+     */
+    public void rewind(long n) {
+        jump(-n);
+    }
+
     public int nextInt() {
         return (int) next();
     }
@@ -0,0 +1,163 @@
+package jp.co.pattirudon.xoroshiroseed.random;
+
+import jp.co.pattirudon.xoroshiroseed.matrices.PackedBinaryMatrix;
+
+/**
+ * xoroshiroの状態遷移を表すGF(2)上の128x128行列Tとその累乗．
+ * 状態は{s0, s1}の順に詰めた128ビットの列ベクトルとして扱う．
+ * T^(2^k)とT^(-2^k)はクラスの初期化時に一度だけ計算し，プロセス全体で共有する．
+ */
+public final class XoroshiroTransition {
+    private static final PackedBinaryMatrix[] forward = new PackedBinaryMatrix[64];
+    private static final PackedBinaryMatrix[] backward = new PackedBinaryMatrix[64];
+
+    static {
+        forward[0] = stepMatrix(false);
+        backward[0] = stepMatrix(true);
+        for (int k = 1; k < 64; k++) {
+            forward[k] = forward[k - 1].multiplyRight(forward[k - 1]);
+            backward[k] = backward[k - 1].multiplyRight(backward[k - 1]);
+        }
+    }
+
+    private XoroshiroTransition() {
+    }
+
+    private static PackedBinaryMatrix stepMatrix(boolean inverse) {
+        /* 各行は単位ベクトルの遷移先，すなわちTの列 */
+        long[][] columns = new long[128][];
+        for (int j = 0; j < 128; j++) {
+            long s0 = j < 64 ? 1L << j : 0L;
+            long s1 = j < 64 ? 0L : 1L << (j - 64);
+            Xoroshiro random = new Xoroshiro(s0, s1);
+            if (inverse) {
+                random.privious();
+            } else {
+                random.next();
+            }
+            columns[j] = new long[] { random.s[0], random.s[1] };
+        }
+        return PackedBinaryMatrix.getInstance(128, 128, columns, false).transposed();
+    }
+
+    /**
+     * T^(2^k)を返す．
+     */
+    public static PackedBinaryMatrix power(int k) {
+        return forward[k];
+    }
+
+    /**
+     * T^(-2^k)を返す．
+     */
+    public static PackedBinaryMatrix inversePower(int k) {
+        return backward[k];
+    }
+
+    /**
+     * 状態sをnフレーム進めた状態を返す．nは符号なし整数として扱う．
+     */
+    public static long[] jump(long[] s, long n) {
+        long[] v = new long[] { s[0], s[1] };
+        apply(forward, v, n);
+        return v;
+    }
+
+    /**
+     * 状態sをnフレーム戻した状態を返す．nは符号なし整数として扱う．
+     */
+    public static long[] rewind(long[] s, long n) {
+        long[] v = new long[] { s[0], s[1] };
+        apply(backward, v, n);
+        return v;
+    }
+
+    /**
+     * 状態sをその場でnフレーム進める．
+     */
+    public static void jumpInPlace(long[] s, long n) {
+        apply(forward, s, n);
+    }
+
+    /**
+     * 状態sをその場でnフレーム戻す．
+     */
+    public static void rewindInPlace(long[] s, long n) {
+        apply(backward, s, n);
+    }
+
+    /**
+     * 状態sをnフレーム進めた状態を返す．nが負のときは-nフレーム戻す．
+     */
+    public static long[] move(long[] s, long n) {
+        long[] v = new long[] { s[0], s[1] };
+        moveInPlace(v, n);
+        return v;
+    }
+
+    /**
+     * 状態sをその場でnフレーム進める．nが負のときは-nフレーム戻す．
+     */
+    public static void moveInPlace(long[] s, long n) {
+        if (n < 0) {
+            apply(backward, s, -n);
+        } else {
+            apply(forward, s, n);
+        }
+    }
+
+    /**
+     * 128ビットの行ベクトルrに右からT^nを掛けたものを返す．nが負のときはT^(-n)の逆行列を掛ける．
+     */
+    public static long[] moveRow(long[] r, long n) {
+        PackedBinaryMatrix[] powers = n < 0 ? backward : forward;
+        long m = n < 0 ? -n : n;
+        long[] v = new long[] { r[0], r[1] };
+        while (m != 0) {
+            int k = Long.numberOfTrailingZeros(m);
+            m &= m - 1;
+            v = powers[k].multiplyLeft(v);
+        }
+        return v;
+    }
+
+    /**
+     * T^nを返す．nが負のときはT^(-n)の逆行列．同じnで何度も進めるときは，これを{@link #multiplyInPlace}に渡す．
+     */
+    public static PackedBinaryMatrix matrix(long n) {
+        PackedBinaryMatrix[] powers = n < 0 ? backward : forward;
+        long m = n < 0 ? -n : n;
+        PackedBinaryMatrix t = PackedBinaryMatrix.ones(128);
+        while (m != 0) {
+            int k = Long.numberOfTrailingZeros(m);
+            m &= m - 1;
+            t = powers[k].multiplyRight(t);
+        }
+        return t;
+    }
+
+    /**
+     * 128x128の行列mを状態vにその場で掛ける．
+     */
+    public static void multiplyInPlace(PackedBinaryMatrix m, long[] v) {
+        long[][] mat = m.mat;
+        long v0 = v[0];
+        long v1 = v[1];
+        long r0 = 0;
+        long r1 = 0;
+        for (int i = 0; i < 64; i++) {
+            r0 |= (Long.bitCount((mat[i][0] & v0) ^ (mat[i][1] & v1)) & 1L) << i;
+            r1 |= (Long.bitCount((mat[i + 64][0] & v0) ^ (mat[i + 64][1] & v1)) & 1L) << i;
+        }
+        v[0] = r0;
+        v[1] = r1;
+    }
+
+    private static void apply(PackedBinaryMatrix[] powers, long[] v, long n) {
+        while (n != 0) {
+            int k = Long.numberOfTrailingZeros(n);
+            n &= n - 1;
+            multiplyInPlace(powers[k], v);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package jp.co.pattirudon.xoroshiroseed.sink;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * リトルエンディアンの64ビット整数を並べた形式．
+ * 先頭に{@link #MAGIC}，続いて1件ごとに
+ * gameStart0, gameStart1, motionStartFrame, motionStart0, motionStart1, motionEnd0, motionEnd1 の7語．
+ * motionEndFrameはmotionStartFrameとモーションの長さから決まるので，長さをヘッダに1語書く．
+ */
+public class BinaryResultSink extends BufferedResultSink {
+    public static final long MAGIC = 0x5853525300000001L;
+    public static final int RECORD_BYTES = 7 * Long.BYTES;
+
+    private final int motionLength;
+
+    public BinaryResultSink(WritableByteChannel channel, int motionLength) {
+        super(channel);
+        this.motionLength = motionLength;
+        buffer.putLong(MAGIC);
+        buffer.putLong(motionLength);
+    }
+
+    @Override
+    public void write(long gameStart0, long gameStart1, long motionStartFrame, long motionStart0, long motionStart1,
+            long motionEndFrame, long motionEnd0, long motionEnd1) throws IOException {
+        if (motionEndFrame - motionStartFrame != motionLength) {
+            throw new IllegalArgumentException("The motion length differs from the header.");
+        }
+        reserve(RECORD_BYTES);
+        buffer.putLong(gameStart0);
+        buffer.putLong(gameStart1);
+        buffer.putLong(motionStartFrame);
+        buffer.putLong(motionStart0);
+        buffer.putLong(motionStart1);
+        buffer.putLong(motionEnd0);
+        buffer.putLong(motionEnd1);
+    }
+}
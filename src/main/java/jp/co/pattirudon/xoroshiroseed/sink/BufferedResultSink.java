@@ -0,0 +1,86 @@
+package jp.co.pattirudon.xoroshiroseed.sink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ByteBufferに書き溜め，いっぱいになったらチャンネルに書き出す．
+ * 16進数と10進数は文字列を作らずにバッファに直接書く．
+ */
+public abstract class BufferedResultSink implements ResultSink {
+    static final int BUFFER_SIZE = 1 << 16;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final WritableByteChannel channel;
+    protected final ByteBuffer buffer;
+
+    protected BufferedResultSink(WritableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * 残りがn バイト未満なら書き出して空ける．
+     */
+    protected final void reserve(int n) throws IOException {
+        if (buffer.remaining() < n) {
+            flush();
+        }
+    }
+
+    protected final void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    protected final void putAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            buffer.put((byte) s.charAt(i));
+        }
+    }
+
+    /**
+     * 0埋めした16桁の16進数．
+     */
+    protected final void putHex(long x) {
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            buffer.put(HEX[(int) (x >>> shift) & 0xf]);
+        }
+    }
+
+    protected final void putDecimal(long x) {
+        if (x == Long.MIN_VALUE) {
+            putAscii(Long.toString(x));
+            return;
+        }
+        if (x < 0) {
+            buffer.put((byte) '-');
+            x = -x;
+        }
+        int start = buffer.position();
+        do {
+            buffer.put((byte) ('0' + x % 10));
+            x /= 10;
+        } while (x != 0);
+        for (int i = start, j = buffer.position() - 1; i < j; i++, j--) {
+            byte b = buffer.get(i);
+            buffer.put(i, buffer.get(j));
+            buffer.put(j, b);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package jp.co.pattirudon.xoroshiroseed.sink;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 1件1行のCSV．状態は16桁の16進数，フレームは10進数で書く．
+ */
+public class CsvResultSink extends BufferedResultSink {
+    public static final String HEADER = "gameStart0,gameStart1,motionStartFrame,motionStart0,motionStart1,"
+            + "motionEndFrame,motionEnd0,motionEnd1\n";
+    private static final int MAX_LINE = 6 * 17 + 2 * 21;
+
+    public CsvResultSink(WritableByteChannel channel) {
+        super(channel);
+        putAscii(HEADER);
+    }
+
+    @Override
+    public void write(long gameStart0, long gameStart1, long motionStartFrame, long motionStart0, long motionStart1,
+            long motionEndFrame, long motionEnd0, long motionEnd1) throws IOException {
+        reserve(MAX_LINE);
+        putHex(gameStart0);
+        buffer.put((byte) ',');
+        putHex(gameStart1);
+        buffer.put((byte) ',');
+        putDecimal(motionStartFrame);
+        buffer.put((byte) ',');
+        putHex(motionStart0);
+        buffer.put((byte) ',');
+        putHex(motionStart1);
+        buffer.put((byte) ',');
+        putDecimal(motionEndFrame);
+        buffer.put((byte) ',');
+        putHex(motionEnd0);
+        buffer.put((byte) ',');
+        putHex(motionEnd1);
+        buffer.put((byte) '\n');
+    }
+}
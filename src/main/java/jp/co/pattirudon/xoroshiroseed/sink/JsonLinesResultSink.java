@@ -0,0 +1,42 @@
+package jp.co.pattirudon.xoroshiroseed.sink;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 1件1行のJSON．各行はバッチモードの"results"の要素と同じ形．
+ */
+public class JsonLinesResultSink extends BufferedResultSink {
+    private static final int MAX_LINE = 256;
+
+    public JsonLinesResultSink(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    private void putState(long s0, long s1) {
+        buffer.put((byte) '[');
+        buffer.put((byte) '"');
+        putHex(s0);
+        putAscii("\",\"");
+        putHex(s1);
+        buffer.put((byte) '"');
+        buffer.put((byte) ']');
+    }
+
+    @Override
+    public void write(long gameStart0, long gameStart1, long motionStartFrame, long motionStart0, long motionStart1,
+            long motionEndFrame, long motionEnd0, long motionEnd1) throws IOException {
+        reserve(MAX_LINE);
+        putAscii("{\"gameStart\":");
+        putState(gameStart0, gameStart1);
+        putAscii(",\"motionStartFrame\":");
+        putDecimal(motionStartFrame);
+        putAscii(",\"motionStart\":");
+        putState(motionStart0, motionStart1);
+        putAscii(",\"motionEndFrame\":");
+        putDecimal(motionEndFrame);
+        putAscii(",\"motionEnd\":");
+        putState(motionEnd0, motionEnd1);
+        putAscii("}\n");
+    }
+}
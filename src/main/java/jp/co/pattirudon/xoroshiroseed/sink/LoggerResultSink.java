@@ -0,0 +1,35 @@
+package jp.co.pattirudon.xoroshiroseed.sink;
+
+import java.util.logging.Logger;
+
+/**
+ * 1件ずつLoggerのinfoに書く．{@link jp.co.pattirudon.xoroshiroseed.SeedSolver#print}の形式．
+ */
+public class LoggerResultSink implements ResultSink {
+    private final Logger logger;
+    private final StringBuilder line = new StringBuilder(128);
+
+    public LoggerResultSink(Logger logger) {
+        this.logger = logger;
+    }
+
+    private void state(long s0, long s1) {
+        line.append('(').append("%016x".formatted(s0)).append(", ").append("%016x".formatted(s1)).append(')');
+    }
+
+    @Override
+    public void write(long gameStart0, long gameStart1, long motionStartFrame, long motionStart0, long motionStart1,
+            long motionEndFrame, long motionEnd0, long motionEnd1) {
+        line.setLength(0);
+        state(gameStart0, gameStart1);
+        line.append(", ").append(motionStartFrame).append(", ");
+        state(motionStart0, motionStart1);
+        line.append(", ").append(motionEndFrame).append(", ");
+        state(motionEnd0, motionEnd1);
+        logger.info(line.toString());
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,23 @@
+package jp.co.pattirudon.xoroshiroseed.sink;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ファイルに書き出すときの形式．
+ */
+public enum ResultFormat {
+    CSV, JSONL, BINARY;
+
+    public ResultSink open(Path path, int motionLength) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return switch (this) {
+            case CSV -> new CsvResultSink(channel);
+            case JSONL -> new JsonLinesResultSink(channel);
+            case BINARY -> new BinaryResultSink(channel, motionLength);
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package jp.co.pattirudon.xoroshiroseed.sink;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 見つかった状態を1件ずつ受け取って書き出す．状態は{s0, s1}の2語をそのまま渡す．
+ */
+public interface ResultSink extends Closeable {
+    void write(long gameStart0, long gameStart1, long motionStartFrame, long motionStart0, long motionStart1,
+            long motionEndFrame, long motionEnd0, long motionEnd1) throws IOException;
+
+    /**
+     * 書き出しが終わったあとに呼ぶ．バッファに残った分を書き出す．
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,90 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import jp.co.pattirudon.xoroshiroseed.random.XoroshiroTransition;
+
+public class AffineSubspaceTest {
+    private static Set<List<Long>> elements(AffineSubspace subspace) {
+        Set<List<Long>> elements = new HashSet<>();
+        subspace.candidates().forEachRemaining((s0, s1) -> elements.add(List.of(s0, s1)));
+        return elements;
+    }
+
+    private static long[] random(Random random) {
+        return new long[] { random.nextLong(), random.nextLong() };
+    }
+
+    @Test
+    public void testIntersect() {
+        Random random = new Random(1);
+        for (int trial = 0; trial < 50; trial++) {
+            long[][] u = new long[6][];
+            for (int k = 0; k < u.length; k++) {
+                u[k] = random(random);
+            }
+            AffineSubspace a = AffineSubspace.of(random(random), u);
+            /* bはaの元を通り，aと向きを一部共有する */
+            long[] point = a.base();
+            for (int k = 0; k < u.length; k++) {
+                if (random.nextBoolean()) {
+                    point[0] ^= u[k][0];
+                    point[1] ^= u[k][1];
+                }
+            }
+            long[][] w = { u[0], { u[1][0] ^ u[2][0], u[1][1] ^ u[2][1] }, random(random), random(random),
+                    u[0] };
+            AffineSubspace b = AffineSubspace.of(trial % 5 == 0 ? random(random) : point, w);
+            assertEquals(4, b.dimension());
+
+            Set<List<Long>> expected = elements(a);
+            expected.retainAll(elements(b));
+            AffineSubspace c = a.intersect(b);
+            assertEquals(expected, elements(c));
+            assertEquals(expected.isEmpty(), c.isEmpty());
+            for (List<Long> e : elements(b)) {
+                assertEquals(expected.contains(e), a.contains(e.get(0), e.get(1)));
+            }
+        }
+        assertTrue(AffineSubspace.of(new long[2], new long[0][]).intersect(AffineSubspace.empty()).isEmpty());
+        assertEquals(-1, AffineSubspace.empty().dimension());
+    }
+
+    @Test
+    public void testCombineCaptures() {
+        Random random = new Random(2);
+        long[] s = random(random);
+        long offset = 12345;
+        long[] t = XoroshiroTransition.move(s, offset);
+        AffineSubspace first = SeedSolver.subspace(SeedSolver.singleBits(s[0], s[1], 80));
+        AffineSubspace second = SeedSolver.subspace(SeedSolver.singleBits(t[0], t[1], 80));
+        assertEquals(48, first.dimension());
+        assertTrue(first.contains(s));
+        assertTrue(second.contains(t));
+
+        AffineSubspace combined = first.shift(offset).intersect(second);
+        assertTrue(combined.contains(t));
+        assertTrue(combined.dimension() < second.dimension());
+        assertTrue(combined.shift(-offset).contains(s));
+        assertEquals(combined.dimension(), combined.shift(-offset).dimension());
+
+        OnlineSolver online = new OnlineSolver();
+        for (byte b : SeedSolver.singleBits(s[0], s[1], 80)) {
+            online.addObservation(b);
+        }
+        AffineSubspace fromOnline = online.subspace();
+        assertEquals(first.dimension(), fromOnline.dimension());
+        assertTrue(first.contains(fromOnline.base()));
+        for (long[] v : fromOnline.basis()) {
+            assertTrue(first.contains(v[0] ^ s[0], v[1] ^ s[1]));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class BatchRunnerTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testJsonLines() throws IOException, InterruptedException {
+        Path input = temporaryFolder.newFile("batch.jsonl").toPath();
+        Files.write(input, List.of(
+                "{\"id\": \"frame\", \"motions\": \"1000110100100\", \"s0\": \"9dded9cbceb8c1cc\", "
+                        + "\"s1\": \"82a2b175229d6a5b\", \"frame\": {\"startInclusive\": 450, \"endExclusive\": 1000}}",
+                "",
+                "{\"motions\": \"0111001010111011101001001000001100001000010111001000010111110110"
+                        + "100010011011010111100101011010101111100100010001100011110001100\"}",
+                "{\"id\": 7, \"motions\": \"10a\"}"));
+        StringWriter output = new StringWriter();
+        assertEquals(3, new BatchRunner(2).run(input, output));
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, JsonNode> results = new HashMap<>();
+        for (String line : output.toString().split("\n")) {
+            JsonNode node = mapper.readTree(line);
+            results.put(node.get("id").asText(), node);
+        }
+        assertEquals(3, results.size());
+        JsonNode frame = results.get("frame").get("results");
+        assertEquals(1, frame.size());
+        assertEquals(500, frame.get(0).get("motionStartFrame").asLong());
+        assertEquals(513, frame.get(0).get("motionEndFrame").asLong());
+        assertEquals(2, results.get("3").get("results").size());
+        assertTrue(results.get("7").has("error"));
+    }
+}
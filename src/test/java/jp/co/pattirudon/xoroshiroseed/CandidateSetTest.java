@@ -0,0 +1,70 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.SplittableRandom;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CandidateSetTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testHeap() {
+        CandidateSet set = new CandidateSet(1000, null);
+        for (int i = 0; i < 1000; i++) {
+            set.add(i, ~i, -i);
+        }
+        assertFalse(set.isSpilled());
+        assertEquals(1000, set.size());
+        assertEquals(999, set.frame(999));
+        assertEquals(~999L, set.s0(999));
+        assertEquals(-999L, set.s1(999));
+    }
+
+    @Test
+    public void testSpill() {
+        File directory = folder.getRoot();
+        int n = CandidateSet.SEGMENT_ROWS + 12345;
+        SplittableRandom random = new SplittableRandom(0);
+        long[] expected = new long[3 * n];
+        try (CandidateSet set = new CandidateSet(100, directory.toPath())) {
+            for (int i = 0; i < n; i++) {
+                expected[3 * i] = random.nextLong();
+                expected[3 * i + 1] = random.nextLong();
+                expected[3 * i + 2] = random.nextLong();
+                set.add(expected[3 * i], expected[3 * i + 1], expected[3 * i + 2]);
+            }
+            assertTrue(set.isSpilled());
+            /* DELETE_ON_CLOSEの一時ファイルは，プラットフォームによっては開いた直後から見えない */
+            assertTrue(directory.list().length <= 1);
+            assertEquals(n, set.size());
+            for (int i = 0; i < n; i++) {
+                assertEquals(expected[3 * i], set.frame(i));
+                assertEquals(expected[3 * i + 1], set.s0(i));
+                assertEquals(expected[3 * i + 2], set.s1(i));
+            }
+            CandidateSet copy = new CandidateSet(Long.MAX_VALUE, null);
+            copy.addAll(set);
+            assertEquals(expected[3 * (n - 1)], copy.frame(n - 1));
+        }
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void testCloseTwice() {
+        CandidateSet set = new CandidateSet(0, folder.getRoot().toPath());
+        set.add(1, 2, 3);
+        assertTrue(set.isSpilled());
+        assertEquals(2, set.s0(0));
+        set.close();
+        set.close();
+        assertEquals(0, folder.getRoot().list().length);
+    }
+}
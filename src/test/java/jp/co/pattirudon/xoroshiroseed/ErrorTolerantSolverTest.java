@@ -0,0 +1,60 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ErrorTolerantSolverTest {
+    static final long S0 = 0x9dded9cbceb8c1ccL;
+    static final long S1 = 0x82a2b175229d6a5bL;
+
+    @Test
+    public void testSolve() {
+        byte[] motions = SeedSolver.singleBits(S0, S1, 160);
+        motions[5] ^= 1;
+        motions[77] ^= 1;
+        assertEquals(0, SeedSolver.solve(motions).size());
+        List<ErrorTolerantSolver.Correction> corrections = ErrorTolerantSolver.solve(motions, 2);
+        ErrorTolerantSolver.Correction found = corrections.stream()
+                .filter(c -> c.gameStart.contains(S0, S1)).findFirst().orElseThrow();
+        assertArrayEquals(new int[] { 5, 77 }, found.positions);
+        for (ErrorTolerantSolver.Correction c : corrections) {
+            assertTrue(c.positions.length <= 2);
+            byte[] corrected = motions.clone();
+            for (int i : c.positions) {
+                corrected[i] ^= 1;
+            }
+            c.gameStart.candidates().forEachRemaining((s0, s1) -> assertArrayEquals(corrected,
+                    SeedSolver.singleBits(s0, s1, motions.length)));
+        }
+        assertEquals(0, ErrorTolerantSolver.solve(motions, 1).size());
+    }
+
+    @Test
+    public void testIndistinguishable() {
+        byte[] motions = SeedSolver.singleBits(S0, S1, 120);
+        assertThrows(IllegalArgumentException.class, () -> ErrorTolerantSolver.solve(motions, 1));
+        assertTrue(ErrorTolerantSolver.distinguishable(160, 32, 2));
+        assertFalse(ErrorTolerantSolver.distinguishable(160, 32, 6));
+    }
+
+    @Test
+    public void testFindMotionStartFrames() {
+        byte[] motions = SeedSolver.singleBits(S0, S1, 600);
+        motions = Arrays.copyOfRange(motions, 500, 513);
+        motions[3] ^= 1;
+        assertEquals(List.of(), SeedSolver.findMotionStartFrames(motions, S0, S1, 450, 1000));
+        List<ErrorTolerantSolver.Correction> corrections = ErrorTolerantSolver.findMotionStartFrames(motions, S0,
+                S1, 450, 1000, 1);
+        ErrorTolerantSolver.Correction found = corrections.stream().filter(c -> c.motionStartFrame == 500)
+                .findFirst().orElseThrow();
+        assertArrayEquals(new int[] { 3 }, found.positions);
+    }
+}
@@ -0,0 +1,70 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import jp.co.pattirudon.xoroshiroseed.random.XoroshiroTransition;
+
+public class FrameWindowIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void assertSameFrames(FrameWindowIndex index, long s0, long s1) {
+        Random random = new Random(1);
+        for (int length : new int[] { 40, 64, 100 }) {
+            long frame = index.startInclusive + random.nextInt((int) index.frames());
+            long[] t = XoroshiroTransition.move(new long[] { s0, s1 }, frame);
+            byte[] motions = SeedSolver.singleBits(t[0], t[1], length);
+            long[][] ranges = { { index.startInclusive, index.endExclusive }, { frame - 7000, frame + 3000 },
+                    { frame, frame + 1 }, { frame + 1, index.endExclusive } };
+            for (long[] r : ranges) {
+                List<Long> expected = SeedSolver.findMotionStartFrames(motions, s0, s1, r[0], r[1]);
+                assertEquals(expected, index.findMotionStartFrames(motions, r[0], r[1]));
+            }
+            assertTrue(index.findMotionStartFrames(motions, frame - 1, frame + 1).contains(frame));
+        }
+    }
+
+    @Test
+    public void testBuild() {
+        long s0 = 0x9dded9cbceb8c1ccL, s1 = 0x82a2b175229d6a5bL;
+        FrameWindowIndex index = FrameWindowIndex.build(s0, s1, 5000, 25000);
+        assertEquals(20000, index.frames());
+        assertSameFrames(index, s0, s1);
+    }
+
+    @Test
+    public void testWriteAndOpen() throws IOException {
+        long s0 = 0x1ffcee5168387a1dL, s1 = 0x82a2b175229d6a5bL;
+        Path path = folder.getRoot().toPath().resolve("index.bin");
+        FrameWindowIndex.build(s0, s1, 0, 30000).write(path);
+        FrameWindowIndex index = FrameWindowIndex.open(path);
+        assertEquals(0, index.startInclusive);
+        assertEquals(30000, index.endExclusive);
+        assertSameFrames(index, s0, s1);
+    }
+
+    @Test
+    public void testFind() {
+        FrameWindowIndex index = FrameWindowIndex.build(1, 2, 0, 1000);
+        FrameWindowIndex.register(index);
+        try {
+            assertSame(index, FrameWindowIndex.find(1, 2, 500, 2000));
+            assertNull(FrameWindowIndex.find(1, 3, 500, 2000));
+            assertNull(FrameWindowIndex.find(1, 2, 1000, 2000));
+        } finally {
+            FrameWindowIndex.clearRegistered();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Test;
+
+public class OnlineSolverTest {
+    static final long S0 = 0x9dded9cbceb8c1ccL;
+    static final long S1 = 0x82a2b175229d6a5bL;
+
+    @Test
+    public void testUniqueState() {
+        byte[] motions = SeedSolver.singleBits(S0, S1, 400);
+        OnlineSolver solver = new OnlineSolver();
+        long[] state = null;
+        int used = 0;
+        while (state == null) {
+            state = solver.addObservation(motions[used++]);
+            assertTrue(solver.isConsistent());
+            int nullRank = 128 - solver.rank();
+            assertEquals(nullRank < 63 ? 1L << nullRank : Long.MAX_VALUE, solver.candidateCount());
+        }
+        assertArrayEquals(new long[] { S0, S1 }, state);
+        assertEquals(128, solver.rank());
+        assertTrue(128 <= used);
+        solver.addObservation(motions[used] ^ 1);
+        assertFalse(solver.isConsistent());
+        assertNull(solver.state());
+        assertEquals(0, solver.candidateCount());
+    }
+
+    @Test
+    public void testCandidatesMatchSolve() {
+        byte[] motions = SeedSolver.singleBits(S0, S1, 115);
+        OnlineSolver solver = new OnlineSolver();
+        for (byte m : motions) {
+            assertNull(solver.addObservation(m));
+        }
+        List<long[]> online = new ArrayList<>();
+        solver.candidates().forEachRemaining((s0, s1) -> online.add(new long[] { s0, s1 }));
+        List<long[]> batch = SeedSolver.solve(motions);
+        Comparator<long[]> order = Comparator.<long[]>comparingLong(s -> s[0]).thenComparingLong(s -> s[1]);
+        online.sort(order);
+        batch.sort(order);
+        assertEquals(batch.size(), online.size());
+        for (int i = 0; i < batch.size(); i++) {
+            assertArrayEquals(batch.get(i), online.get(i));
+        }
+    }
+
+    @Test
+    public void testStartFrame() {
+        byte[] motions = SeedSolver.singleBits(S0, S1, 1200);
+        OnlineSolver solver = new OnlineSolver(1000);
+        long[] state = null;
+        for (int i = 1000; state == null; i++) {
+            state = solver.addObservation(motions[i]);
+        }
+        assertArrayEquals(new long[] { S0, S1 }, state);
+    }
+}
@@ -2,16 +2,31 @@ package jp.co.pattirudon.xoroshiroseed;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import jp.co.pattirudon.xoroshiroseed.matrices.BinaryMatrix;
+import jp.co.pattirudon.xoroshiroseed.matrices.LongPairPredicate;
+import jp.co.pattirudon.xoroshiroseed.random.ObservationSpec;
 import jp.co.pattirudon.xoroshiroseed.random.Xoroshiro;
+import jp.co.pattirudon.xoroshiroseed.random.XoroshiroTransition;
 
 public class SeedSolverTest {
     @Test
@@ -110,13 +125,11 @@ public class SeedSolverTest {
         long s = Xoroshiro.XOROSHIRO_CONST;
         int frameStartInclusive = 6400;
         int frameEndExclusive = 6800;
-        Entry<List<Integer>, List<long[]>> e = SeedSolver.findSingleState(decodeMotions(m), designated, s,
-                frameStartInclusive, frameEndExclusive);
-        List<Integer> frameMotionStart = e.getKey();
-        List<long[]> stateGameStart = e.getValue();
-        int i = frameMotionStart.indexOf(6596);
+        CandidateSet e = SeedSolver.findSingleState(decodeMotions(m), designated, s, frameStartInclusive,
+                frameEndExclusive);
+        long i = indexOfFrame(e, 6596L);
         assertTrue(0 <= i);
-        assertArrayEquals(new long[] { 0x1ffcee5168387a1dL, Xoroshiro.XOROSHIRO_CONST }, stateGameStart.get(i));
+        assertArrayEquals(new long[] { 0x1ffcee5168387a1dL, Xoroshiro.XOROSHIRO_CONST }, e.state(i));
     }
 
     @Test
@@ -127,13 +140,262 @@ public class SeedSolverTest {
         long s = 0xca4c2f63c244046cL;
         int frameStartInclusive = 60000;
         int frameEndExclusive = 60001;
-        Entry<List<Integer>, List<long[]>> e = SeedSolver.findSingleState(decodeMotions(m), designated, s,
-                frameStartInclusive, frameEndExclusive);
-        List<Integer> frameMotionStart = e.getKey();
-        List<long[]> stateGameStart = e.getValue();
-        assertEquals(1, frameMotionStart.size());
-        assertEquals(frameStartInclusive, frameMotionStart.get(0).intValue());
-        assertEquals(1, stateGameStart.size());
-        assertArrayEquals(new long[] { s, 0x08b66923c3d60eacL }, stateGameStart.get(0));
+        CandidateSet e = SeedSolver.findSingleState(decodeMotions(m), designated, s, frameStartInclusive,
+                frameEndExclusive);
+        assertEquals(1, e.size());
+        assertEquals(frameStartInclusive, e.frame(0));
+        assertArrayEquals(new long[] { s, 0x08b66923c3d60eacL }, e.state(0));
+    }
+
+    @Test
+    public void testFindMotionStartFrames() {
+        long s0 = 0x9dded9cbceb8c1ccL;
+        long s1 = Xoroshiro.XOROSHIRO_CONST;
+        long motionStart = 777;
+        for (int n : new int[] { 13, 64, 65, 150 }) {
+            byte[] motions = SeedSolver.singleBits(s0, s1, (int) motionStart + n);
+            motions = Arrays.copyOfRange(motions, (int) motionStart, (int) motionStart + n);
+            List<Long> frames = SeedSolver.findMotionStartFrames(motions, s0, s1, 450, 1000);
+            assertTrue(frames.contains(motionStart));
+            for (long f : frames) {
+                byte[] m = SeedSolver.singleBits(s0, s1, (int) f + n);
+                assertArrayEquals(motions, Arrays.copyOfRange(m, (int) f, (int) f + n));
+            }
+        }
+    }
+
+    @Test
+    public void testParallelSearch() {
+        String m = "0111100010101001100010101000011010111011011111010000001111000010"
+                + "10010111";
+        byte[] motions = decodeMotions(m);
+        long s = Xoroshiro.XOROSHIRO_CONST;
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            CandidateSet sequential = SeedSolver.findSingleState(motions, 1, s, 100, 30000);
+            CandidateSet parallel = SeedSolver.findSingleState(motions, 1, s, 100, 30000, 4, pool);
+            assertEquals(results(sequential), results(parallel));
+            assertTrue(0 <= indexOfFrame(parallel, 6596L));
+
+            long[] g = parallel.state(indexOfFrame(parallel, 6596L));
+            assertEquals(SeedSolver.findMotionStartFrames(motions, g[0], g[1], 0, 50000),
+                    SeedSolver.findMotionStartFrames(motions, g[0], g[1], 0, 50000, 4, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSolveTableStore() throws IOException {
+        String m = "1111000010011011110011001010011000100001001010101010100011010100"
+                + "11001111011000001010100110000100110010110101101111001101";
+        byte[] d = decodeMotions(m);
+        Path directory = temporaryFolder.getRoot().toPath();
+        List<long[]> expected = SeedSolver.solve(d);
+        List<long[]> computed = SeedSolver.solve(d, new SolveTableStore(directory));
+        assertTrue(Files.isRegularFile(directory.resolve("solve-120.bin")));
+        List<long[]> loaded = SeedSolver.solve(d, new SolveTableStore(directory));
+        assertArrayEquals(expected.toArray(long[][]::new), computed.toArray(long[][]::new));
+        assertArrayEquals(expected.toArray(long[][]::new), loaded.toArray(long[][]::new));
+        SolveTables tables = SolveTables.read(directory.resolve("solve-120.bin"));
+        assertEquals(8, tables.nullBasis.length);
+        assertEquals(0, tables.parityCheck().length);
+    }
+
+    @Test
+    public void testSolveTableStoreConcurrent() throws Exception {
+        SolveTableStore store = new SolveTableStore(temporaryFolder.getRoot().toPath());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<Future<SolveTables>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(pool.submit(() -> store.get(200)));
+            }
+            SolveTables first = futures.get(0).get();
+            for (Future<SolveTables> future : futures) {
+                assertSame(first, future.get());
+            }
+            assertSame(first, store.get(ObservationSpec.LOW_BIT, 200));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSolveWithFilter() {
+        String m = "0111001010111011101001001000001100001000010111001000010111110110"
+                + "100010011011010111100101011010101111100100010001100011110001100";
+        byte[] d = decodeMotions(m);
+        byte[] head = Arrays.copyOf(d, 108);
+        assertEquals(20, SeedSolver.candidates(head).dimension());
+        LongPairPredicate filter = (s0, s1) -> Arrays.equals(d, SeedSolver.singleBits(s0, s1, d.length));
+        assertFalse(filter.isTrivial());
+        assertTrue(LongPairPredicate.all().isTrivial());
+        List<long[]> result = SeedSolver.solve(head, filter);
+        assertEquals(2, result.size());
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            List<long[]> pooled = SeedSolver.solve(head, filter, pool);
+            assertArrayEquals(result.toArray(long[][]::new), pooled.toArray(long[][]::new));
+        } finally {
+            pool.shutdown();
+        }
+        List<long[]> expected = SeedSolver.solve(d);
+        for (long[] r : result) {
+            assertTrue(expected.stream().anyMatch(e -> Arrays.equals(e, r)));
+        }
+    }
+
+    private static long indexOfFrame(CandidateSet e, long frame) {
+        for (long i = 0; i < e.size(); i++) {
+            if (e.frame(i) == frame) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<String> results(CandidateSet e) {
+        List<String> results = new ArrayList<>();
+        for (long i = 0; i < e.size(); i++) {
+            results.add("%d %016x %016x".formatted(e.frame(i), e.s0(i), e.s1(i)));
+        }
+        return results;
+    }
+
+    private static List<String> sortedResults(CandidateSet e) {
+        List<String> results = results(e);
+        Collections.sort(results);
+        return results;
+    }
+
+    @Test
+    public void testFindSingleStates() {
+        byte[] d0 = decodeMotions("0111100010101001100010101000011010111011011111010000001111000010"
+                + "10010111");
+        byte[] d1 = decodeMotions("0110010101110010111101111000010111010111110111101111110101101111"
+                + "101001001011");
+        Object[][] cases = { { d0, 1, Xoroshiro.XOROSHIRO_CONST, 6400L, 6800L },
+                { d1, 0, 0xca4c2f63c244046cL, 59900L, 60100L } };
+        Random random = new Random(0);
+        for (Object[] c : cases) {
+            byte[] d = (byte[]) c[0];
+            int designated = (int) c[1];
+            long[] knowns = { (long) c[2], random.nextLong(), random.nextLong() };
+            long start = (long) c[3], end = (long) c[4];
+            List<CandidateSet> found = SeedSolver.findSingleStates(d, designated, knowns, start, end);
+            assertEquals(knowns.length, found.size());
+            for (int q = 0; q < knowns.length; q++) {
+                CandidateSet expected = SeedSolver.findSingleState(d, designated, knowns[q], start, end);
+                assertEquals(sortedResults(expected), sortedResults(found.get(q)));
+            }
+            assertFalse(found.get(0).isEmpty());
+        }
+    }
+
+    static final ObservationSpec TWO_OBSERVATIONS = new ObservationSpec(new long[] { 1L, 1L << 5 },
+            new long[] { 1L, 1L << 17 });
+
+    @Test
+    public void testSolveWithObservations() {
+        Random random = new Random(3);
+        for (int trial = 0; trial < 5; trial++) {
+            long s0 = random.nextLong(), s1 = random.nextLong();
+            byte[] motions = TWO_OBSERVATIONS.observe(s0, s1, 64);
+            List<long[]> found = new ArrayList<>();
+            SeedSolver.candidates(motions, TWO_OBSERVATIONS, SolveTableStore.getDefault())
+                    .forEachRemaining((t0, t1) -> found.add(new long[] { t0, t1 }));
+            assertTrue(0 < found.size() && found.size() <= 1 << 8);
+            assertTrue(found.stream().anyMatch(t -> t[0] == s0 && t[1] == s1));
+            for (long[] t : found) {
+                assertArrayEquals(motions, TWO_OBSERVATIONS.observe(t[0], t[1], 64));
+            }
+        }
+    }
+
+    @Test
+    public void testFindMotionStartFramesWithObservations() {
+        long s0 = 0x9dded9cbceb8c1ccL, s1 = Xoroshiro.XOROSHIRO_CONST;
+        long[] t = XoroshiroTransition.move(new long[] { s0, s1 }, 600);
+        for (int frames : new int[] { 5, 40, 80 }) {
+            byte[] motions = TWO_OBSERVATIONS.observe(t[0], t[1], frames);
+            List<Long> expected = new ArrayList<>();
+            for (long f = 450; f < 1000; f++) {
+                long[] u = XoroshiroTransition.move(new long[] { s0, s1 }, f);
+                if (Arrays.equals(motions, TWO_OBSERVATIONS.observe(u[0], u[1], frames))) {
+                    expected.add(f);
+                }
+            }
+            assertTrue(expected.contains(600L));
+            assertEquals(expected, SeedSolver.findMotionStartFrames(motions, TWO_OBSERVATIONS, s0, s1, 450, 1000));
+            assertEquals(expected, SeedSolver.findMotionStartFrames(motions, TWO_OBSERVATIONS, s0, s1, 450, 1000,
+                    4, ForkJoinPool.commonPool()));
+        }
+    }
+
+    @Test
+    public void testFindSingleStateWithObservations() {
+        Random random = new Random(4);
+        long s1 = Xoroshiro.XOROSHIRO_CONST;
+        for (int trial = 0; trial < 3; trial++) {
+            long s0 = random.nextLong();
+            long frame = 500 + random.nextInt(400);
+            long[] t = XoroshiroTransition.move(new long[] { s0, s1 }, frame);
+            byte[] motions = TWO_OBSERVATIONS.observe(t[0], t[1], 64);
+            CandidateSet found = SeedSolver.findSingleState(motions, TWO_OBSERVATIONS, 1, s1, 450, 1000,
+                    LongPairPredicate.all());
+            boolean planted = false;
+            for (long i = 0; i < found.size(); i++) {
+                assertEquals(s1, found.s1(i));
+                long[] u = XoroshiroTransition.move(found.state(i), found.frame(i));
+                assertArrayEquals(motions, TWO_OBSERVATIONS.observe(u[0], u[1], 64));
+                planted |= found.frame(i) == frame && found.s0(i) == s0;
+            }
+            assertTrue(planted);
+        }
+    }
+
+    @Test
+    public void testFrameWindowTablesLimits() throws Exception {
+        byte[] motions = SeedSolver.singleBits(0x1ffcee5168387a1dL, Xoroshiro.XOROSHIRO_CONST, 80);
+        assertThrows(IllegalArgumentException.class,
+                () -> FrameWindowTables.get(TWO_OBSERVATIONS, 1, 0, 100, 80, 1, Runnable::run));
+        assertThrows(IllegalArgumentException.class,
+                () -> FrameWindowTables.get(1, 0, 1L << 40, 80, 1, Runnable::run));
+        assertThrows(IllegalArgumentException.class,
+                () -> FrameWindowTables.get(1, Long.MIN_VALUE, Long.MAX_VALUE, 80, 1, Runnable::run));
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<Future<FrameWindowTables>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(pool.submit(() -> FrameWindowTables.get(1, 7000, 9000, 80, 1, Runnable::run)));
+            }
+            for (Future<FrameWindowTables> f : futures) {
+                assertSame(futures.get(0).get(), f.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        long reserved = FrameWindowTables.reservedBytes();
+        assertTrue(2000 * FrameWindowTables.bytesPerFrame(80) <= reserved);
+        assertTrue(reserved <= FrameWindowTables.MAX_BYTES);
+        assertThrows(IllegalArgumentException.class,
+                () -> FrameWindowTables.get(1, 0, 1L << 40, 80, 1, Runnable::run));
+        assertEquals(reserved, FrameWindowTables.reservedBytes());
+
+        long[] knowns = { Xoroshiro.XOROSHIRO_CONST, 1L };
+        byte[] observed = TWO_OBSERVATIONS.observe(0x1ffcee5168387a1dL, Xoroshiro.XOROSHIRO_CONST, 64);
+        List<CandidateSet> found = SeedSolver.findSingleStates(observed, TWO_OBSERVATIONS, 1, knowns, -10, 10, 1,
+                Runnable::run);
+        for (int q = 0; q < knowns.length; q++) {
+            assertEquals(sortedResults(SeedSolver.findSingleState(observed, TWO_OBSERVATIONS, 1, knowns[q], -10, 10,
+                    LongPairPredicate.all())), sortedResults(found.get(q)));
+        }
+        assertFalse(found.get(0).isEmpty());
+        assertFalse(SeedSolver.findSingleStates(motions, 1, knowns, 0, 10).get(0).isEmpty());
     }
 }
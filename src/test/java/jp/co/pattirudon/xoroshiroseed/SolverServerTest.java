@@ -0,0 +1,65 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+public class SolverServerTest {
+    @Test
+    public void testSolve() throws IOException, InterruptedException {
+        try (SolverServer server = new SolverServer(0, 2, 4)) {
+            server.start();
+            HttpClient client = HttpClient.newHttpClient();
+            URI uri = URI.create("http://127.0.0.1:%d/solve".formatted(server.port()));
+            String body = "{\"id\": \"q\", \"motions\": \"1000110100100\", \"s0\": \"9dded9cbceb8c1cc\", "
+                    + "\"s1\": \"82a2b175229d6a5b\", \"frame\": {\"startInclusive\": 450, \"endExclusive\": 1000}}";
+            HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            JsonNode result = new ObjectMapper().readTree(response.body());
+            assertEquals("q", result.get("id").asText());
+            assertEquals(500, result.get("results").get(0).get("motionStartFrame").asLong());
+
+            HttpResponse<String> bad = client.send(
+                    HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.ofString("{}")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, bad.statusCode());
+
+            HttpResponse<String> tooFew = client.send(HttpRequest.newBuilder(uri)
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"motions\": \"0101\"}")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, tooFew.statusCode());
+
+            HttpResponse<String> noFrame = client.send(HttpRequest.newBuilder(uri)
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"motions\": \"0101\", \"s1\": \"1\"}")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, noFrame.statusCode());
+        }
+    }
+
+    @Test
+    public void testErrorType() {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonSolver solver = new JsonSolver(mapper);
+        ObjectNode input = solver.solve("a", () -> mapper.readTree("{\"motions\": \"012\"}"));
+        assertEquals(JsonSolver.INPUT_ERROR, input.get("errorType").asText());
+        ObjectNode internal = solver.solve("b", () -> {
+            throw new NullPointerException();
+        });
+        assertEquals(JsonSolver.INTERNAL_ERROR, internal.get("errorType").asText());
+        assertFalse(solver.solve("c", () -> mapper.readTree("{\"motions\": \"0101\", \"s0\": \"1\", \"s1\": \"2\", "
+                + "\"frame\": {\"startInclusive\": 0, \"endExclusive\": 10}}")).has("error"));
+    }
+}
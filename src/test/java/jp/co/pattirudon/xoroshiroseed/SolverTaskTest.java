@@ -0,0 +1,122 @@
+package jp.co.pattirudon.xoroshiroseed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import jp.co.pattirudon.xoroshiroseed.config.FrameConfig;
+import jp.co.pattirudon.xoroshiroseed.config.SeedSolverConfig;
+import jp.co.pattirudon.xoroshiroseed.random.Xoroshiro;
+
+public class SolverTaskTest {
+    static final byte[] MOTIONS = SeedSolver.singleBits(0x1ffcee5168387a1dL, Xoroshiro.XOROSHIRO_CONST, 80);
+
+    @Test
+    public void testComplete() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<SolverTask.Progress> reports = new CopyOnWriteArrayList<>();
+            SolverTask task = SolverTask
+                    .findSingleState(MOTIONS, 1, Xoroshiro.XOROSHIRO_CONST, -1000, 100000, 4, pool)
+                    .onProgress(reports::add, 0).start();
+            CandidateSet found = task.future().get(1, TimeUnit.MINUTES);
+            CandidateSet expected = SeedSolver.findSingleState(MOTIONS, 1, Xoroshiro.XOROSHIRO_CONST, -1000,
+                    100000);
+            assertEquals(expected.size(), found.size());
+            for (long i = 0; i < found.size(); i++) {
+                assertEquals(expected.frame(i), found.frame(i));
+                assertEquals(expected.s0(i), found.s0(i));
+            }
+            SolverTask.Progress last = reports.get(reports.size() - 1);
+            assertEquals(101000, last.framesDone);
+            assertEquals(101000, last.totalFrames);
+            assertEquals(found.size(), last.candidates);
+            assertEquals(Duration.ZERO, last.eta());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            SolverTask task = SolverTask
+                    .findSingleState(MOTIONS, 1, Xoroshiro.XOROSHIRO_CONST, 0, Long.MAX_VALUE, 2, pool).start();
+            while (task.progress().framesDone == 0) {
+                Thread.sleep(1);
+            }
+            assertTrue(task.cancel());
+            assertTrue(task.isCancelled());
+            assertTrue(pool.awaitQuiescence(1, TimeUnit.MINUTES));
+            assertTrue(task.progress().framesDone < 1L << 40);
+            assertTrue(task.partialResult().isEmpty());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            SolverTask task = SolverTask.findSingleState(MOTIONS, 1, Xoroshiro.XOROSHIRO_CONST, 0, 1L << 40, 2, pool)
+                    .timeout(Duration.ofMillis(300)).start();
+            try {
+                task.future().get(1, TimeUnit.MINUTES);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof TimeoutException);
+            }
+            assertTrue(pool.awaitQuiescence(1, TimeUnit.MINUTES));
+            long done = task.progress().framesDone;
+            assertTrue(0 < done);
+            CandidateSet partial = task.partialResult();
+            for (long i = 0; i < partial.size(); i++) {
+                assertTrue(partial.frame(i) < done + 2 * SolverTask.CHUNK_FRAMES);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSearchWithErrors() throws Exception {
+        long s0 = 0x9dded9cbceb8c1ccL, s1 = Xoroshiro.XOROSHIRO_CONST;
+        byte[] motions = Arrays.copyOfRange(SeedSolver.singleBits(s0, s1, 70000), 60000, 60040);
+        motions[7] ^= 1;
+        StringBuilder m = new StringBuilder();
+        for (byte b : motions) {
+            m.append(b);
+        }
+        SeedSolverConfig config = new SeedSolverConfig(m.toString(), Long.toHexString(s0), Long.toHexString(s1),
+                new FrameConfig(0, 100000), 4, 1, null);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<SolverTask.Progress> reports = new CopyOnWriteArrayList<>();
+            SolverTask task = SolverTask.search(config, pool).onProgress(reports::add, 0).start();
+            CandidateSet found = task.future().get(1, TimeUnit.MINUTES);
+            CandidateSet expected = SeedSolver.search(config, 1, Runnable::run);
+            assertFalse(found.isEmpty());
+            assertEquals(expected.size(), found.size());
+            for (long i = 0; i < found.size(); i++) {
+                assertEquals(expected.frame(i), found.frame(i));
+            }
+            assertTrue(1 < reports.size());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
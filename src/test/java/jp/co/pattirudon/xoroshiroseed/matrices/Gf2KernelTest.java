@@ -0,0 +1,59 @@
+package jp.co.pattirudon.xoroshiroseed.matrices;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class Gf2KernelTest {
+    private final Gf2Kernel original = Gf2Kernel.current();
+
+    @After
+    public void restore() {
+        Gf2Kernel.use(original.name());
+    }
+
+    private static PackedBinaryMatrix random(Random random, int rows, int columns) {
+        PackedBinaryMatrix m = PackedBinaryMatrix.zeros(rows, columns);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                m.set(i, j, random.nextInt(2));
+            }
+        }
+        return m;
+    }
+
+    @Test
+    public void testVectorMatchesScalar() {
+        assumeTrue(Gf2Kernel.isVectorAvailable());
+        Random random = new Random(15);
+        for (int columns : new int[] { 3, 64, 130, 700 }) {
+            PackedBinaryMatrix f = random(random, 128, columns);
+            PackedBinaryMatrix g = random(random, columns, 90);
+            long[] column = random(random, 1, columns).mat[0];
+            long[] row = random(random, 1, 128).mat[0];
+
+            Gf2Kernel.use(Gf2Kernel.SCALAR);
+            PackedBinaryMatrix.Enchelon se = f.enchelon();
+            PackedBinaryMatrix sg = f.generalizedInverse();
+            PackedBinaryMatrix sp = f.multiplyRight(g);
+            long[] sr = f.multiplyRight(column);
+            long[] sl = f.multiplyLeft(row);
+
+            assertEquals(Gf2Kernel.VECTOR, Gf2Kernel.use(Gf2Kernel.VECTOR).name());
+            PackedBinaryMatrix.Enchelon ve = f.enchelon();
+            assertEquals(se.rank, ve.rank);
+            assertEquals(se.pivots, ve.pivots);
+            assertArrayEquals(se.f.mat, ve.f.mat);
+            assertArrayEquals(se.p.mat, ve.p.mat);
+            assertArrayEquals(sg.mat, f.generalizedInverse().mat);
+            assertArrayEquals(sp.mat, f.multiplyRight(g).mat);
+            assertArrayEquals(sr, f.multiplyRight(column));
+            assertArrayEquals(sl, f.multiplyLeft(row));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package jp.co.pattirudon.xoroshiroseed.matrices;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class GrayCodeSpliteratorTest {
+    private static long[][] basis(int r, Random random) {
+        /* 下三角の形にして一次独立にする */
+        long[][] basis = new long[r][2];
+        for (int j = 0; j < r; j++) {
+            basis[j][0] = random.nextLong() & ((1L << j) - 1) | (1L << j);
+            basis[j][1] = random.nextLong();
+        }
+        return basis;
+    }
+
+    @Test
+    public void testEnumeration() {
+        Random random = new Random(0);
+        long[] base = { random.nextLong(), random.nextLong() };
+        long[][] basis = basis(10, random);
+        List<long[]> expected = new ArrayList<>();
+        for (int i = 0; i < (1 << basis.length); i++) {
+            long[] p = base.clone();
+            for (int j = 0; j < basis.length; j++) {
+                if (((i >>> j) & 1) == 1) {
+                    p[0] ^= basis[j][0];
+                    p[1] ^= basis[j][1];
+                }
+            }
+            expected.add(p);
+        }
+        List<long[]> actual = new GrayCodeSpliterator(base, basis).stream(false).toList();
+        assertEquals(expected.size(), actual.size());
+        Set<List<Long>> e = new HashSet<>();
+        expected.forEach(p -> e.add(List.of(p[0], p[1])));
+        Set<List<Long>> a = new HashSet<>();
+        actual.forEach(p -> a.add(List.of(p[0], p[1])));
+        assertEquals(e, a);
+        assertArrayEquals(base, actual.get(0));
+    }
+
+    @Test
+    public void testSplit() {
+        Random random = new Random(1);
+        long[] base = { random.nextLong(), random.nextLong() };
+        long[][] basis = basis(12, random);
+        long[][] sequential = new GrayCodeSpliterator(base, basis).stream(false).toArray(long[][]::new);
+        long[][] parallel = new GrayCodeSpliterator(base, basis).stream(true).toArray(long[][]::new);
+        assertArrayEquals(sequential, parallel);
+        assertEquals(1 << 12, new GrayCodeSpliterator(base, basis).stream(true).filter(p -> true).count());
+        assertEquals(0, GrayCodeSpliterator.empty().stream(false).count());
+    }
+}
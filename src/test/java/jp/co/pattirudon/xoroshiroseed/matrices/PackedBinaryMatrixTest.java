@@ -0,0 +1,67 @@
+package jp.co.pattirudon.xoroshiroseed.matrices;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PackedBinaryMatrixTest {
+    private static PackedBinaryMatrix random(int rows, int columns, long seed) {
+        Random random = new Random(seed);
+        PackedBinaryMatrix m = PackedBinaryMatrix.zeros(rows, columns);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                m.set(i, j, random.nextInt(2));
+            }
+        }
+        return m;
+    }
+
+    @Test
+    public void testTransposed() {
+        int[][] shapes = { { 1, 1 }, { 64, 64 }, { 63, 65 }, { 128, 77 }, { 200, 130 } };
+        for (int[] shape : shapes) {
+            PackedBinaryMatrix m = random(shape[0], shape[1], shape[0] * 31 + shape[1]);
+            PackedBinaryMatrix t = m.transposed();
+            assertEquals(m.columns, t.rows);
+            assertEquals(m.rows, t.columns);
+            for (int i = 0; i < m.rows; i++) {
+                for (int j = 0; j < m.columns; j++) {
+                    assertEquals(m.get(i, j), t.get(j, i));
+                }
+            }
+            assertArrayEquals(m.mat, t.transposed().mat);
+        }
+    }
+
+    @Test
+    public void testByteAdapter() {
+        PackedBinaryMatrix m = random(90, 150, 1);
+        BinaryMatrix b = BinaryMatrix.getInstance(m);
+        assertArrayEquals(m.mat, b.toPacked().mat);
+        BinaryMatrix g = b.generalizedInverse();
+        assertArrayEquals(b.mat, b.multiplyRight(g).multiplyRight(b).mat);
+        assertEquals(m.enchelon().rank, b.enchelon().rank);
+    }
+
+    @Test
+    public void testFourRussians() {
+        int[][] shapes = { { 1, 1 }, { 7, 300 }, { 300, 7 }, { 130, 130 }, { 400, 128 }, { 128, 1000 } };
+        for (int[] shape : shapes) {
+            PackedBinaryMatrix m = random(shape[0], shape[1], shape[0] * 17 + shape[1]);
+            /* 階数落ちさせる */
+            for (int i = 2; i < m.rows; i += 3) {
+                m.mat[i] = m.mat[i - 1].clone();
+                m.addRows(i - 2, i);
+            }
+            PackedBinaryMatrix.Enchelon expected = m.enchelonGaussJordan();
+            PackedBinaryMatrix.Enchelon actual = m.enchelonFourRussians();
+            assertEquals(expected.rank, actual.rank);
+            assertEquals(expected.pivots, actual.pivots);
+            assertArrayEquals(expected.f.mat, actual.f.mat);
+            assertArrayEquals(expected.p.mat, actual.p.mat);
+        }
+    }
+}
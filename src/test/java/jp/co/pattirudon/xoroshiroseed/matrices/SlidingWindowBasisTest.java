@@ -0,0 +1,82 @@
+package jp.co.pattirudon.xoroshiroseed.matrices;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SlidingWindowBasisTest {
+    private static long parity(long x) {
+        return Long.bitCount(x) & 1L;
+    }
+
+    private static void check(int length, long rowMask, long seed) {
+        Random random = new Random(seed);
+        int frames = 600;
+        byte[] motions = new byte[length];
+        for (int k = 0; k < length; k++) {
+            motions[k] = (byte) random.nextInt(2);
+        }
+        long[] rows = new long[frames];
+        int[] bases = new int[frames];
+        for (int t = 0; t < frames; t++) {
+            rows[t] = random.nextLong() & rowMask;
+            bases[t] = random.nextInt(2);
+        }
+        /* ある窓には必ず解があるようにする */
+        int planted = frames / 2;
+        long x0 = random.nextLong();
+        for (int k = 0; k < length; k++) {
+            bases[planted + k] = (int) (parity(rows[planted + k] & x0) ^ motions[k]);
+        }
+        SlidingWindowBasis window = new SlidingWindowBasis(motions);
+        int consistentCount = 0;
+        for (int t = 0; t <= frames; t++) {
+            if (window.isFull()) {
+                int start = t - length;
+                long[][] mat = new long[length][];
+                long[] y = new long[PackedBinaryMatrix.wordsFor(length)];
+                for (int k = 0; k < length; k++) {
+                    mat[k] = new long[] { rows[start + k] };
+                    y[k >>> 6] |= (long) (bases[start + k] ^ motions[k]) << k;
+                }
+                PackedBinaryMatrix f = PackedBinaryMatrix.getInstance(length, 64, mat, false).transposed();
+                long[] x = f.generalizedInverse().multiplyLeft(y);
+                boolean expected = Arrays.equals(y, f.multiplyLeft(x));
+                assertEquals(expected, window.isConsistent());
+                assertEquals(f.enchelon().rank, window.rank());
+                if (expected) {
+                    consistentCount++;
+                    long[] nullBasis = window.nullBasis();
+                    assertEquals(64 - window.rank(), nullBasis.length);
+                    long p = window.particularSolution();
+                    for (int k = 0; k < length; k++) {
+                        assertEquals(bases[start + k] ^ motions[k], parity(rows[start + k] & p));
+                        for (long v : nullBasis) {
+                            assertEquals(0, parity(rows[start + k] & v));
+                        }
+                    }
+                }
+                if (start == planted) {
+                    assertTrue(expected);
+                }
+            }
+            if (t < frames) {
+                window.push(rows[t], bases[t]);
+            }
+        }
+        assertTrue(0 < consistentCount);
+    }
+
+    @Test
+    public void testAgainstElimination() {
+        check(20, -1L, 0);
+        check(64, -1L, 1);
+        check(77, -1L, 2);
+        check(77, 0xffffL, 3);
+        check(130, 0xff00ff00ffL, 4);
+    }
+}
@@ -0,0 +1,42 @@
+package jp.co.pattirudon.xoroshiroseed.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import jp.co.pattirudon.xoroshiroseed.SeedSolver;
+import jp.co.pattirudon.xoroshiroseed.random.Xoroshiro;
+
+public class SolverMetricsTest {
+    @Test
+    public void testFindSingleState() {
+        Xoroshiro random = new Xoroshiro(0x9dded9cbceb8c1ccL, 0x82a2b175229d6a5bL);
+        random.jump(5000);
+        byte[] motions = new byte[80];
+        for (int i = 0; i < motions.length; i++) {
+            motions[i] = (byte) (random.nextInt() & 1);
+        }
+        SolverMetrics metrics = new SolverMetrics();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try (SolverMetrics.Scope scope = metrics.attach()) {
+            SeedSolver.findSingleState(motions, 0, 0x9dded9cbceb8c1ccL, 0, 10000, 2, pool);
+        } finally {
+            pool.shutdown();
+        }
+        metrics.finish();
+        ObjectNode json = metrics.toJson(new ObjectMapper());
+        assertEquals(10000, json.get("framesScanned").asLong());
+        assertTrue(json.get("candidates").asLong() >= 1);
+        assertTrue(json.get("nullRank").asInt() >= 0);
+        assertTrue(json.get("windowUpdates").asLong() >= 10000 + motions.length);
+        assertTrue(json.get("phaseMillis").has("scan"));
+        /* attachしていないスレッドには記録されない */
+        assertTrue(!SolverMetrics.current().isEnabled());
+    }
+}
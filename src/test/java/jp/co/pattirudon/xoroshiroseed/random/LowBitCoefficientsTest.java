@@ -0,0 +1,30 @@
+package jp.co.pattirudon.xoroshiroseed.random;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LowBitCoefficientsTest {
+    @Test
+    public void testCoefficients() {
+        for (long start : new long[] { 0, 1, 1000, -77 }) {
+            Xoroshiro[] units = new Xoroshiro[128];
+            for (int j = 0; j < 128; j++) {
+                units[j] = new Xoroshiro(j < 64 ? 1L << j : 0, j < 64 ? 0 : 1L << (j - 64));
+                units[j].jump(start);
+            }
+            LowBitCoefficients coefficients = new LowBitCoefficients(start);
+            for (int frame = 0; frame < 300; frame++) {
+                long x = 0;
+                long y = 0;
+                for (int j = 0; j < 64; j++) {
+                    x |= (units[j].nextInt() & 1L) << j;
+                    y |= (units[j + 64].nextInt() & 1L) << j;
+                }
+                assertEquals(x, coefficients.s0());
+                assertEquals(y, coefficients.s1());
+                coefficients.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package jp.co.pattirudon.xoroshiroseed.random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import jp.co.pattirudon.xoroshiroseed.config.ObservationConfig;
+import jp.co.pattirudon.xoroshiroseed.config.SeedSolverConfig;
+import jp.co.pattirudon.xoroshiroseed.matrices.PackedBinaryMatrix;
+
+public class ObservationSpecTest {
+    @Test
+    public void testObserveAgreesWithMatrix() {
+        ObservationSpec spec = new ObservationSpec(new long[] { 1L, 0x8000000000000001L, 0 },
+                new long[] { 1L, 0, 0x10L });
+        Random random = new Random(1);
+        long s0 = random.nextLong(), s1 = random.nextLong();
+        int frames = 50;
+        byte[] observed = spec.observe(s0, s1, frames);
+        assertEquals(frames * spec.size(), observed.length);
+        PackedBinaryMatrix m = spec.matrix(frames);
+        for (int q = 0; q < observed.length; q++) {
+            int bit = 0;
+            for (int i = 0; i < 128; i++) {
+                long s = i < 64 ? s0 : s1;
+                bit ^= (int) ((s >>> (i & 63)) & m.get(i, q));
+            }
+            assertEquals(observed[q], bit);
+        }
+        assertArrayEquals(ObservationSpec.LOW_BIT.observe(s0, s1, 10),
+                new ObservationSpec(new long[] { 1L }, new long[] { 1L }).observe(s0, s1, 10));
+        assertTrue(new ObservationSpec(new long[] { 1L }, new long[] { 1L }).isLowBit());
+    }
+
+    @Test
+    public void testInvalidSpecs() {
+        assertThrows(IllegalArgumentException.class, () -> new ObservationSpec(new long[] { 1 }, new long[0]));
+        assertThrows(IllegalArgumentException.class, () -> new ObservationSpec(new long[0], new long[0]));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ObservationSpec(new long[] { 1, 0 }, new long[] { 1, 0 }));
+        ObservationSpec spec = new ObservationSpec(new long[] { 1, 2 }, new long[] { 1, 2 });
+        assertEquals(3, spec.frames(6));
+        assertThrows(IllegalArgumentException.class, () -> spec.frames(7));
+    }
+
+    @Test
+    public void testInvalidConfigs() {
+        List<ObservationConfig> two = List.of(new ObservationConfig("1", "1"), new ObservationConfig("2", "2"));
+        SeedSolverConfig config = new SeedSolverConfig("0110", null, null, null, null, null, two);
+        assertEquals(2, config.motionFrames());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new SeedSolverConfig("011", null, null, null, null, null, two));
+        assertTrue(e.getMessage().contains("multiple"));
+        assertThrows(IllegalArgumentException.class, () -> new SeedSolverConfig("0110", null, null, null, null, 1,
+                two));
+        assertThrows(IllegalArgumentException.class, () -> new SeedSolverConfig("0110", null, null, null, null,
+                null, List.of(new ObservationConfig("0", "0"))));
+        assertThrows(NumberFormatException.class, () -> new ObservationConfig("xyz", "1"));
+    }
+}
@@ -0,0 +1,72 @@
+package jp.co.pattirudon.xoroshiroseed.random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class XoroshiroTest {
+    @Test
+    public void testJump() {
+        long s0 = 0x9dded9cbceb8c1ccL;
+        long s1 = Xoroshiro.XOROSHIRO_CONST;
+        for (int n : new int[] { 0, 1, 2, 3, 64, 777, 100000 }) {
+            Xoroshiro stepped = new Xoroshiro(s0, s1);
+            for (int i = 0; i < n; i++) {
+                stepped.next();
+            }
+            Xoroshiro jumped = new Xoroshiro(s0, s1);
+            jumped.jump(n);
+            assertArrayEquals(stepped.s, jumped.s);
+            jumped.rewind(n);
+            assertArrayEquals(new long[] { s0, s1 }, jumped.s);
+        }
+    }
+
+    @Test
+    public void testJumpComposition() {
+        Xoroshiro a = new Xoroshiro(0x0123456789abcdefL, 0xfedcba9876543210L);
+        Xoroshiro b = new Xoroshiro(0x0123456789abcdefL, 0xfedcba9876543210L);
+        a.jump(1_000_000_007L);
+        a.jump(-7L);
+        b.jump(999_999_000L);
+        b.jump(1_000L);
+        assertArrayEquals(a.s, b.s);
+        assertEquals(a.i, b.i);
+    }
+
+    @Test
+    public void testJumpCounter() {
+        Xoroshiro a = new Xoroshiro(1L);
+        a.next();
+        a.jump(1L << 40);
+        assertEquals((1L << 40) + 1, a.i);
+        a.rewind(1L << 41);
+        assertEquals(1 - (1L << 40), a.i);
+    }
+
+    @Test
+    public void testFillLowBits() {
+        long s0 = 0x9dded9cbceb8c1ccL;
+        long s1 = Xoroshiro.XOROSHIRO_CONST;
+        for (int frames : new int[] { 0, 1, 63, 64, 65, 200 }) {
+            Xoroshiro stepped = new Xoroshiro(s0, s1);
+            long[] expected = new long[4];
+            long t0 = s0;
+            long t1 = s1;
+            for (int j = 0; j < frames; j++) {
+                expected[j >>> 6] |= (stepped.nextInt() & 1L) << j;
+                assertEquals((expected[j >>> 6] >>> j) & 1, Xoroshiro.lowBit(t0, t1));
+                long n0 = Xoroshiro.nextS0(t0, t1);
+                t1 = Xoroshiro.nextS1(t0, t1);
+                t0 = n0;
+            }
+            assertArrayEquals(stepped.s, new long[] { t0, t1 });
+            Xoroshiro filled = new Xoroshiro(s0, s1);
+            long[] actual = new long[4];
+            filled.fillLowBits(actual, frames);
+            assertArrayEquals(expected, actual);
+            assertArrayEquals(stepped.s, filled.s);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package jp.co.pattirudon.xoroshiroseed.sink;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jp.co.pattirudon.xoroshiroseed.CandidateSet;
+import jp.co.pattirudon.xoroshiroseed.SeedSolver;
+import jp.co.pattirudon.xoroshiroseed.random.Xoroshiro;
+
+public class ResultSinkTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    static final long S0 = 0x9dded9cbceb8c1ccL;
+    static final long S1 = 0x82a2b175229d6a5bL;
+    static final int MOTION_LENGTH = 13;
+    static final long[] FRAMES = { -3, 0, 5, 500, 100000, 100001 };
+
+    private static void write(ResultSink sink) throws IOException {
+        CandidateSet found = new CandidateSet();
+        for (long f : FRAMES) {
+            found.add(f, S0, S1);
+        }
+        try (sink) {
+            SeedSolver.write(sink, found, MOTION_LENGTH);
+        }
+    }
+
+    private static long[] stepped(long frame) {
+        Xoroshiro random = new Xoroshiro(S0, S1);
+        if (frame < 0) {
+            for (long i = 0; i < -frame; i++) {
+                random.privious();
+            }
+        } else {
+            for (long i = 0; i < frame; i++) {
+                random.next();
+            }
+        }
+        return random.s;
+    }
+
+    @Test
+    public void testCsv() throws IOException {
+        Path path = temporaryFolder.newFile("results.csv").toPath();
+        write(ResultFormat.CSV.open(path, MOTION_LENGTH));
+        List<String> lines = Files.readAllLines(path);
+        assertEquals(CsvResultSink.HEADER.strip(), lines.get(0));
+        assertEquals(FRAMES.length + 1, lines.size());
+        for (int i = 0; i < FRAMES.length; i++) {
+            long[] s = stepped(FRAMES[i]);
+            long[] e = stepped(FRAMES[i] + MOTION_LENGTH);
+            assertEquals("%016x,%016x,%d,%016x,%016x,%d,%016x,%016x".formatted(S0, S1, FRAMES[i], s[0], s[1],
+                    FRAMES[i] + MOTION_LENGTH, e[0], e[1]), lines.get(i + 1));
+        }
+    }
+
+    @Test
+    public void testJsonLines() throws IOException {
+        Path path = temporaryFolder.newFile("results.jsonl").toPath();
+        write(ResultFormat.JSONL.open(path, MOTION_LENGTH));
+        List<String> lines = Files.readAllLines(path);
+        assertEquals(FRAMES.length, lines.size());
+        ObjectMapper mapper = new ObjectMapper();
+        for (int i = 0; i < FRAMES.length; i++) {
+            JsonNode node = mapper.readTree(lines.get(i));
+            long[] e = stepped(FRAMES[i] + MOTION_LENGTH);
+            assertEquals(FRAMES[i], node.get("motionStartFrame").asLong());
+            assertEquals(FRAMES[i] + MOTION_LENGTH, node.get("motionEndFrame").asLong());
+            assertEquals("%016x".formatted(e[1]), node.get("motionEnd").get(1).asText());
+        }
+    }
+
+    @Test
+    public void testBinary() throws IOException {
+        Path path = temporaryFolder.newFile("results.bin").toPath();
+        write(ResultFormat.BINARY.open(path, MOTION_LENGTH));
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(2 * Long.BYTES + FRAMES.length * BinaryResultSink.RECORD_BYTES, buffer.remaining());
+        assertEquals(BinaryResultSink.MAGIC, buffer.getLong());
+        assertEquals(MOTION_LENGTH, buffer.getLong());
+        for (long f : FRAMES) {
+            long[] s = stepped(f);
+            long[] e = stepped(f + MOTION_LENGTH);
+            assertEquals(S0, buffer.getLong());
+            assertEquals(S1, buffer.getLong());
+            assertEquals(f, buffer.getLong());
+            assertEquals(s[0], buffer.getLong());
+            assertEquals(s[1], buffer.getLong());
+            assertEquals(e[0], buffer.getLong());
+            assertEquals(e[1], buffer.getLong());
+        }
+    }
+}